@@ -0,0 +1,52 @@
+package com.havefunwith.customer;
+
+import java.util.Locale;
+
+/*
+    Reads an Accept-Encoding header the way RFC 9110 says: a coding with q=0 is refused,
+    a coding that is not listed takes the weight of *, and without either it is refused.
+    Identity is not handled, it is always acceptable here.
+ */
+public final class AcceptEncoding {
+
+    private AcceptEncoding() {}
+
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double codingWeight = null;
+        Double anyWeight = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String name = parts[0].strip().toLowerCase(Locale.ROOT);
+            double weight = weight(parts);
+            if (name.equals(coding) || name.equals("x-" + coding)) {
+                codingWeight = codingWeight == null ? weight : Math.max(codingWeight, weight);
+            } else if (name.equals("*")) {
+                anyWeight = weight;
+            }
+        }
+        if (codingWeight != null) {
+            return codingWeight > 0;
+        }
+        return anyWeight != null && anyWeight > 0;
+    }
+
+    // a weight that does not parse refuses the coding rather than guessing
+    private static double weight(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].strip();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).strip());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
@@ -17,10 +17,17 @@ import java.util.Objects;
 public class Customer {
 
     @Id
+    /*
+        Pooled allocation: one nextval reserves a whole block of ids, so inserts skip the
+        extra round trip and can be batched. Every node and the BIGSERIAL default go
+        through the same sequence, so blocks never overlap. allocationSize is the INCREMENT
+        BY the V3 migration gives the sequence, changing one takes a new migration that
+        changes the other.
+     */
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1 // will match increment size in the entity mapping to the associated database sequence
+            allocationSize = 50 // the sequence's INCREMENT BY, see V3__Pooled_Customer_Id_Allocation.sql
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -40,6 +47,11 @@ public class Customer {
 //            unique = true // it's being defined at @Table annotation
     )
     private String email;
+    @Version
+    @Column(
+            nullable = false
+    )
+    private Long version;
 
     public Customer() {}
 
@@ -56,6 +68,11 @@ public class Customer {
         this.email = email;
     }
 
+    public Customer(Long id, String name, Integer age, String email, Long version) {
+        this(id, name, age, email);
+        this.version = version;
+    }
+
 
     public Long getId() {
         return id;
@@ -89,6 +106,15 @@ public class Customer {
         this.email = email;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    // version is concurrency metadata, it is deliberately left out of equality
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -109,6 +135,7 @@ public class Customer {
                 ", name='" + name + '\'' +
                 ", age=" + age +
                 ", email='" + email + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
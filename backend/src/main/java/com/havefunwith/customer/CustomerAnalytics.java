@@ -0,0 +1,22 @@
+package com.havefunwith.customer;
+
+import java.util.List;
+
+/*
+    Customer counts for dashboards: the total, how many customers fall in each age bucket,
+    and the email domains with the most customers, all read from one snapshot.
+ */
+public record CustomerAnalytics(
+        long customers,
+        List<AgeBucket> ageDistribution,
+        List<EmailDomainCount> topEmailDomains
+) {
+
+    // fromAge and toAge are both inclusive, empty buckets are left out
+    public record AgeBucket(int fromAge, int toAge, long customers) {
+    }
+
+    public record EmailDomainCount(String emailDomain, long customers) {
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.havefunwith.customer;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Profile("!reactive") // reads through JDBC, it would block the event loop
+@RestController
+@RequestMapping("api/v1/customers/analytics")
+public class CustomerAnalyticsController {
+
+    private final CustomerAnalyticsService customerAnalyticsService;
+
+    public CustomerAnalyticsController(CustomerAnalyticsService customerAnalyticsService) {
+        this.customerAnalyticsService = customerAnalyticsService;
+    }
+
+    @GetMapping
+    public CustomerAnalytics getAnalytics(
+            @RequestParam(value = "bucketWidth", defaultValue = "10") int bucketWidth,
+            @RequestParam(value = "emailDomains", defaultValue = "10") int emailDomains) {
+        return customerAnalyticsService.getAnalytics(bucketWidth, emailDomains);
+    }
+
+}
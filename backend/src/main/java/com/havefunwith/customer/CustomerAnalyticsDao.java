@@ -0,0 +1,36 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.customer.CustomerAnalytics.AgeBucket;
+import com.havefunwith.customer.CustomerAnalytics.EmailDomainCount;
+import com.havefunwith.datasource.ReadOnlyQuery;
+
+import java.util.List;
+
+/*
+    Reads the customer counts that the V7__Customer_Stats.sql triggers keep per age and per
+    email domain, so a query costs a row per bucket whatever the number of customers.
+ */
+public interface CustomerAnalyticsDao {
+
+     @ReadOnlyQuery
+     long countCustomers();
+
+     /*
+        Ages grouped into buckets of bucketWidth years, from 0, youngest first.
+      */
+     @ReadOnlyQuery
+     List<AgeBucket> selectAgeDistribution(int bucketWidth);
+
+     /*
+        The limit email domains with the most customers, ties by domain.
+      */
+     @ReadOnlyQuery
+     List<EmailDomainCount> selectTopEmailDomains(int limit);
+
+     /*
+        Recounts the customer table and corrects the counts by the difference, for writes
+        the triggers did not see. Returns how far the counts were off.
+      */
+     CustomerStatsDrift reconcile();
+
+}
@@ -0,0 +1,163 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.customer.CustomerAnalytics.AgeBucket;
+import com.havefunwith.customer.CustomerAnalytics.EmailDomainCount;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    The counts are split into stripes per bucket, see V7__Customer_Stats.sql, every query
+    sums them.
+ */
+@Log4j2
+@Repository("analyticsJdbc")
+public class CustomerAnalyticsJDBCDataAccessService implements CustomerAnalyticsDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerAnalyticsJDBCDataAccessService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long countCustomers() {
+        var sql = """
+                SELECT coalesce(sum(customers), 0)
+                FROM customer_age_stats
+                """;
+        log.debug("countCustomers ::");
+        Long customers = jdbcTemplate.queryForObject(sql, Long.class);
+        return customers == null ? 0 : customers;
+    }
+
+    @Override
+    public List<AgeBucket> selectAgeDistribution(int bucketWidth) {
+        // floor division, so negative ages still land in buckets of bucketWidth
+        var sql = """
+                SELECT floor(age::numeric / ?)::int * ? AS from_age, sum(customers) AS customers
+                FROM customer_age_stats
+                GROUP BY 1
+                HAVING sum(customers) > 0
+                ORDER BY 1
+                """;
+        log.debug("selectAgeDistribution ::");
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            int fromAge = rs.getInt("from_age");
+            return new AgeBucket(fromAge, fromAge + bucketWidth - 1, rs.getLong("customers"));
+        }, bucketWidth, bucketWidth);
+    }
+
+    @Override
+    public List<EmailDomainCount> selectTopEmailDomains(int limit) {
+        var sql = """
+                SELECT email_domain, sum(customers) AS customers
+                FROM customer_email_domain_stats
+                GROUP BY email_domain
+                HAVING sum(customers) > 0
+                ORDER BY 2 DESC, 1
+                LIMIT ?
+                """;
+        log.debug("selectTopEmailDomains ::");
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new EmailDomainCount(
+                rs.getString("email_domain"),
+                rs.getLong("customers")
+        ), limit);
+    }
+
+    /*
+        Each dimension is recounted and corrected in a single statement: its two scans
+        share one snapshot, and the correction is added to the stripe 0 rows as they are
+        when it commits, so writes committed meanwhile are neither lost nor counted twice.
+        Then the stripes of buckets summing to zero, customers that are gone, are deleted.
+        A write may land on one of them after the sum was taken, so whatever the delete
+        removes is added back. The rows are locked in key order first, like the triggers
+        lock them, so the delete cannot deadlock with a write.
+
+        The advisory lock keeps instances from reconciling at once, both would see the same
+        drift and correct it twice. The one that waited recounts after the other committed.
+     */
+    @Override
+    @Transactional
+    public CustomerStatsDrift reconcile() {
+        var ageSql = """
+                WITH drift AS (
+                    SELECT age, coalesce(actual.customers, 0) - coalesce(counted.customers, 0) AS customers
+                    FROM (SELECT age, count(*) AS customers FROM customer GROUP BY age) actual
+                    FULL JOIN (SELECT age, sum(customers) AS customers FROM customer_age_stats GROUP BY age) counted
+                        USING (age)
+                    WHERE coalesce(actual.customers, 0) <> coalesce(counted.customers, 0)
+                ), corrected AS (
+                    INSERT INTO customer_age_stats AS s (age, stripe, customers)
+                    SELECT age, 0, customers FROM drift ORDER BY age
+                    ON CONFLICT (age, stripe) DO UPDATE SET customers = s.customers + EXCLUDED.customers
+                )
+                SELECT count(*) AS buckets, coalesce(sum(abs(customers)), 0) AS customers
+                FROM drift
+                """;
+        var emailDomainSql = """
+                WITH drift AS (
+                    SELECT email_domain, coalesce(actual.customers, 0) - coalesce(counted.customers, 0) AS customers
+                    FROM (SELECT lower(split_part(email, '@', 2)) AS email_domain, count(*) AS customers
+                          FROM customer
+                          GROUP BY 1) actual
+                    FULL JOIN (SELECT email_domain, sum(customers) AS customers
+                               FROM customer_email_domain_stats
+                               GROUP BY email_domain) counted
+                        USING (email_domain)
+                    WHERE coalesce(actual.customers, 0) <> coalesce(counted.customers, 0)
+                ), corrected AS (
+                    INSERT INTO customer_email_domain_stats AS s (email_domain, stripe, customers)
+                    SELECT email_domain, 0, customers FROM drift ORDER BY email_domain
+                    ON CONFLICT (email_domain, stripe) DO UPDATE SET customers = s.customers + EXCLUDED.customers
+                )
+                SELECT count(*) AS buckets, coalesce(sum(abs(customers)), 0) AS customers
+                FROM drift
+                """;
+        log.debug("reconcile ::");
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext('customer_stats_reconcile'))", rs -> {
+        });
+        long[] age = jdbcTemplate.queryForObject(ageSql,
+                (rs, rowNum) -> new long[]{rs.getLong("buckets"), rs.getLong("customers")});
+        long[] emailDomain = jdbcTemplate.queryForObject(emailDomainSql,
+                (rs, rowNum) -> new long[]{rs.getLong("buckets"), rs.getLong("customers")});
+        dropEmptyBuckets("customer_age_stats", "age");
+        dropEmptyBuckets("customer_email_domain_stats", "email_domain");
+        return new CustomerStatsDrift(age[0], age[1], emailDomain[0], emailDomain[1]);
+    }
+
+    private void dropEmptyBuckets(String table, String key) {
+        var deleteSql = """
+                DELETE FROM %1$s
+                WHERE (%2$s, stripe) IN (
+                    SELECT %2$s, stripe
+                    FROM %1$s
+                    WHERE %2$s IN (SELECT %2$s FROM %1$s GROUP BY %2$s HAVING sum(customers) = 0)
+                    ORDER BY %2$s, stripe
+                    FOR UPDATE)
+                RETURNING %2$s AS bucket, customers
+                """.formatted(table, key);
+        var addSql = """
+                INSERT INTO %1$s AS s (%2$s, stripe, customers)
+                VALUES (?, 0, ?)
+                ON CONFLICT (%2$s, stripe) DO UPDATE SET customers = s.customers + EXCLUDED.customers
+                """.formatted(table, key);
+        Map<Object, Long> deleted = new HashMap<>();
+        jdbcTemplate.query(deleteSql, (RowCallbackHandler) rs ->
+                deleted.merge(rs.getObject("bucket"), rs.getLong("customers"), Long::sum));
+        List<Object[]> added = deleted.entrySet().stream()
+                .filter(bucket -> bucket.getValue() != 0)
+                .map(bucket -> new Object[]{bucket.getKey(), bucket.getValue()})
+                .toList();
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(addSql, added);
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class CustomerAnalyticsService {
+
+    private static final int MAX_BUCKET_WIDTH = 100;
+    private static final int MAX_EMAIL_DOMAINS = 100;
+
+    private final CustomerAnalyticsDao customerAnalyticsDao;
+
+    public CustomerAnalyticsService(@Qualifier("analyticsJdbc") CustomerAnalyticsDao customerAnalyticsDao) {
+        this.customerAnalyticsDao = customerAnalyticsDao;
+    }
+
+    /*
+        Repeatable read, so the total, the distribution and the domains add up even while
+        customers are written.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CustomerAnalytics getAnalytics(int bucketWidth, int emailDomains) {
+        if (bucketWidth < 1 || bucketWidth > MAX_BUCKET_WIDTH) {
+            throw new RequestValidationException(
+                    "Bucket width must be between 1 and %s".formatted(MAX_BUCKET_WIDTH));
+        }
+        if (emailDomains < 1 || emailDomains > MAX_EMAIL_DOMAINS) {
+            throw new RequestValidationException(
+                    "Number of email domains must be between 1 and %s".formatted(MAX_EMAIL_DOMAINS));
+        }
+        return new CustomerAnalytics(
+                customerAnalyticsDao.countCustomers(),
+                customerAnalyticsDao.selectAgeDistribution(bucketWidth),
+                customerAnalyticsDao.selectTopEmailDomains(emailDomains));
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.havefunwith.customer;
+
+import java.util.List;
+
+public record CustomerBulkRegistrationResponse(
+        int created,
+        int rejected,
+        List<CustomerRegistrationResult> results
+) {
+}
@@ -0,0 +1,140 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.customer.CustomerRegistrationResult.Status;
+import com.havefunwith.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/*
+    Business Layer for bulk registration.
+
+    Costs one set-based duplicate check and one JDBC batch per request, no matter how
+    many customers it carries. Emails the Bloom filter rules out skip the duplicate check.
+    If the filter rules out all of them, the check is skipped entirely. Every item gets
+    its own outcome, so a duplicate or an invalid item never fails the rest of the batch.
+ */
+@Service
+public class CustomerBulkRegistrationService {
+
+    private static final int MAX_BATCH_SIZE = 50_000;
+    private static final int MAX_AGE = 150;
+
+    private final CustomerDao customerDAO;
+    private final CustomerEmailFilter customerEmailFilter;
+
+    public CustomerBulkRegistrationService(@Qualifier("jdbc") CustomerDao customerDAO,
+                                           CustomerEmailFilter customerEmailFilter) {
+        this.customerDAO = customerDAO;
+        this.customerEmailFilter = customerEmailFilter;
+    }
+
+    public CustomerBulkRegistrationResponse addCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new RequestValidationException(
+                    "Bulk registration accepts at most %s customers".formatted(MAX_BATCH_SIZE));
+        }
+
+        CustomerRegistrationResult[] results = new CustomerRegistrationResult[requests.size()];
+
+        // validation is CPU only and independent per item
+        String[] errors = IntStream.range(0, requests.size())
+                .parallel()
+                .mapToObj(i -> validate(requests.get(i)))
+                .toArray(String[]::new);
+
+        // the first occurrence of an email inside the batch wins
+        Set<String> seen = new HashSet<>();
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            String email = request == null ? null : request.email();
+            if (errors[i] != null) {
+                results[i] = new CustomerRegistrationResult(i, email, Status.INVALID, errors[i]);
+            } else if (!seen.add(email)) {
+                results[i] = new CustomerRegistrationResult(i, email, Status.DUPLICATE,
+                        "Customer with email [%s] is repeated in the request.".formatted(email));
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        List<String> probablyExisting = candidates.stream()
+                .map(i -> requests.get(i).email())
+                .filter(customerEmailFilter::mightContain)
+                .toList();
+        Set<String> existing = probablyExisting.isEmpty()
+                ? Set.of()
+                : customerDAO.selectExistingEmails(probablyExisting);
+
+        List<Integer> toInsert = new ArrayList<>();
+        for (int i : candidates) {
+            String email = requests.get(i).email();
+            if (existing.contains(email)) {
+                results[i] = duplicate(i, email);
+            } else {
+                toInsert.add(i);
+            }
+        }
+
+        if (!toInsert.isEmpty()) {
+            List<Customer> customers = toInsert.stream()
+                    .map(requests::get)
+                    .map(request -> new Customer(request.name(), request.age(), request.email()))
+                    .toList();
+            int[] inserted = customerDAO.insertCustomers(customers);
+            for (int j = 0; j < toInsert.size(); j++) {
+                int i = toInsert.get(j);
+                String email = requests.get(i).email();
+                // 0 means a concurrent registration took the email after the duplicate check.
+                // Without a count, as from a rewritten batch, the row passed that check and
+                // the statement succeeded, so it is taken as created.
+                if (inserted[j] > 0 || inserted[j] == Statement.SUCCESS_NO_INFO) {
+                    customerEmailFilter.put(email);
+                    results[i] = new CustomerRegistrationResult(i, email, Status.CREATED, null);
+                } else {
+                    results[i] = duplicate(i, email);
+                }
+            }
+        }
+
+        int created = (int) Arrays.stream(results)
+                .filter(result -> result.status() == Status.CREATED)
+                .count();
+        return new CustomerBulkRegistrationResponse(created, results.length - created, List.of(results));
+    }
+
+    private static CustomerRegistrationResult duplicate(int index, String email) {
+        return new CustomerRegistrationResult(index, email, Status.DUPLICATE,
+                "Customer with email [%s] already exist.".formatted(email));
+    }
+
+    private static String validate(CustomerRegistrationRequest request) {
+        if (request == null) {
+            return "Customer is missing";
+        }
+        if (request.name() == null || request.name().isBlank()) {
+            return "Name is required";
+        }
+        String email = request.email();
+        if (email == null || email.isBlank()) {
+            return "Email is required";
+        }
+        int at = email.indexOf('@');
+        if (at < 1 || at == email.length() - 1) {
+            return "Email [%s] is not valid".formatted(email);
+        }
+        if (request.age() == null || request.age() < 0 || request.age() > MAX_AGE) {
+            return "Age must be between 0 and %s".formatted(MAX_AGE);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.havefunwith.customer;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/*
+    Bounded read-through cache of customers by id. Entries are immutable snapshots and
+    every read hands out a fresh Customer, so callers can never mutate a cached value.
+    Missing customers are not cached. Hits, misses and evictions are published as
+    cache.* metrics tagged cache=customer.
+
+    The loader runs on the calling thread outside of any map lock: a database read inside
+    Caffeine's compute would pin a virtual thread to its carrier. Concurrent readers of
+    the same id wait on the loading future instead, and invalidate drops an in-flight
+    load so a value read before a write is never cached after it.
+ */
+@Component
+public class CustomerCache {
+
+    private final AsyncCache<Long, Snapshot> cache;
+
+    public CustomerCache(@Value("${customer.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${customer.cache.time-to-live:10m}") Duration timeToLive,
+                         MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customer");
+    }
+
+    public Optional<Customer> get(Long id, Function<Long, Optional<Customer>> loader) {
+        CompletableFuture<Snapshot> cached = cache.getIfPresent(id);
+        if (cached == null) {
+            CompletableFuture<Snapshot> loading = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(id, loading);
+            if (cached == null) {
+                // a future completed with null is removed by Caffeine, so misses are not cached
+                try {
+                    loading.complete(loader.apply(id).map(Snapshot::of).orElse(null));
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                cached = loading;
+            }
+        }
+        return Optional.ofNullable(join(cached)).map(Snapshot::toCustomer);
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    // a reader waiting on another thread's load sees that load's exception as is
+    private static Snapshot join(CompletableFuture<Snapshot> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Snapshot(Long id, String name, Integer age, String email, Long version) {
+
+        static Snapshot of(Customer customer) {
+            return new Snapshot(
+                    customer.getId(),
+                    customer.getName(),
+                    customer.getAge(),
+                    customer.getEmail(),
+                    customer.getVersion()
+            );
+        }
+
+        Customer toCustomer() {
+            return new Customer(id, name, age, email, version);
+        }
+    }
+
+}
@@ -0,0 +1,628 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.exception.DuplicatedResourceException;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/*
+    Column-wise in-memory store for read-heavy replicas and analytics, sized for tens of
+    millions of rows. A row is a slot in primitive arrays instead of a Customer object:
+
+    - ids, ages and versions are long[] / int[] columns
+    - names are split at the first space, the first word is dictionary-encoded into an
+      int[] column and the rest is kept as UTF-8 in a byte arena, like emails
+    - id and email lookups go through primitive open-addressing hash indexes
+
+    Slots are appended in id order and a deleted row stays as a tombstone, so the id
+    column is always sorted and keyset pages are a binary search. Arena bytes of deleted
+    or replaced values are not reclaimed.
+
+    Readers share a read lock, writers take the write lock. Customers are materialized
+    per call, so callers never see or change the columns.
+
+    Searches scan the name and email columns. A TrigramIndex, like the list store has,
+    would take more memory than the columns themselves.
+ */
+@Repository("columnar") // naming bean
+public class CustomerColumnarDataAccessService implements CustomerDao {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NO_VALUE = -1;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] firstNames = new int[INITIAL_CAPACITY];
+    private long[] nameRests = new long[INITIAL_CAPACITY];
+    private long[] emails = new long[INITIAL_CAPACITY];
+    private long[] live = new long[INITIAL_CAPACITY / 64];
+    private int size;
+    private long lastId;
+
+    private final ByteArena arena = new ByteArena();
+    private final Dictionary firstNameDictionary = new Dictionary();
+    private final LongIntIndex idIndex = new LongIntIndex();
+    private final EmailIndex emailIndex = new EmailIndex();
+
+    public CustomerColumnarDataAccessService() {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        readLock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(idIndex.size());
+            for (int slot = 0; slot < size; slot++) {
+                if (isLive(slot)) {
+                    customers.add(materialize(slot));
+                }
+            }
+            return customers;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        readLock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(Math.min(limit, idIndex.size()));
+            // first slot with an id above afterId
+            int slot = Arrays.binarySearch(ids, 0, size, afterId);
+            slot = slot < 0 ? -slot - 1 : slot + 1;
+            for (; slot < size && customers.size() < limit; slot++) {
+                if (isLive(slot)) {
+                    customers.add(materialize(slot));
+                }
+            }
+            return customers;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(CustomerFilter filter, Long afterId, int limit) {
+        readLock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(Math.min(limit, idIndex.size()));
+            int slot = Arrays.binarySearch(ids, 0, size, afterId);
+            slot = slot < 0 ? -slot - 1 : slot + 1;
+            for (; slot < size && customers.size() < limit; slot++) {
+                if (isLive(slot) && filter.matches(name(slot), ages[slot], arena.get(emails[slot]))) {
+                    customers.add(materialize(slot));
+                }
+            }
+            return customers;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /*
+        Materializes fetchSize slots at a time under the read lock and calls the consumer
+        without it, so a slow consumer never blocks writers.
+     */
+    @Override
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        int from = 0;
+        while (true) {
+            List<Customer> chunk = new ArrayList<>(fetchSize);
+            readLock.lock();
+            try {
+                if (from >= size) {
+                    return;
+                }
+                int to = (int) Math.min(size, (long) from + fetchSize);
+                for (int slot = from; slot < to; slot++) {
+                    if (isLive(slot)) {
+                        chunk.add(materialize(slot));
+                    }
+                }
+                from = to;
+            } finally {
+                readLock.unlock();
+            }
+            chunk.forEach(consumer);
+        }
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        readLock.lock();
+        try {
+            int slot = idIndex.get(id);
+            return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int offset, int limit) {
+        long[] queryTrigrams = TrigramIndex.trigrams(query);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+        List<TrigramIndex.Match> matches = new ArrayList<>();
+        readLock.lock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                if (!isLive(slot)) {
+                    continue;
+                }
+                double similarity = TrigramIndex.similarity(queryTrigrams, name(slot), arena.get(emails[slot]));
+                if (similarity >= TrigramIndex.THRESHOLD) {
+                    matches.add(new TrigramIndex.Match(materialize(slot), similarity));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return TrigramIndex.page(matches, offset, limit);
+    }
+
+    @Override
+    public boolean insertCustomer(Customer customer) {
+        byte[] email = utf8(customer.getEmail());
+        writeLock.lock();
+        try {
+            return append(customer, email);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        byte[][] emails = customers.stream()
+                .map(customer -> utf8(customer.getEmail()))
+                .toArray(byte[][]::new);
+        int[] result = new int[customers.size()];
+        writeLock.lock();
+        try {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = append(customers.get(i), emails[i]) ? 1 : 0;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        byte[] bytes = utf8(email);
+        readLock.lock();
+        try {
+            return emailIndex.find(bytes) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        readLock.lock();
+        try {
+            for (String email : emails) {
+                if (emailIndex.find(utf8(email)) >= 0) {
+                    existing.add(email);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean existsPersonById(Long id) {
+        readLock.lock();
+        try {
+            return idIndex.get(id) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id) {
+        return delete(id, null);
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id, long version) {
+        return delete(id, version);
+    }
+
+    // null deletes whatever the version
+    private boolean delete(Long id, Long version) {
+        writeLock.lock();
+        try {
+            int slot = idIndex.get(id);
+            if (slot < 0 || (version != null && version != versions[slot])) {
+                return false;
+            }
+            idIndex.remove(id);
+            emailIndex.remove(slot);
+            live[slot >>> 6] &= ~(1L << slot);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Customer> updateCustomer(Customer update) {
+        byte[] email = update.getEmail() == null ? null : utf8(update.getEmail());
+        writeLock.lock();
+        try {
+            int slot = idIndex.get(update.getId());
+            if (slot < 0 || (update.getVersion() != null && update.getVersion() != versions[slot])) {
+                return Optional.empty();
+            }
+            String name = name(slot);
+            boolean nameChanged = update.getName() != null && !update.getName().equals(name);
+            boolean ageChanged = update.getAge() != null && update.getAge() != ages[slot];
+            boolean emailChanged = email != null && !arena.equalTo(emails[slot], email);
+            if (!nameChanged && !ageChanged && !emailChanged) {
+                return Optional.empty();
+            }
+            if (emailChanged) {
+                if (emailIndex.find(email) >= 0) {
+                    throw new DuplicatedResourceException(
+                            "Customer with email [%s] already exist.".formatted(update.getEmail()));
+                }
+                emailIndex.remove(slot);
+                emails[slot] = arena.put(email);
+                emailIndex.add(slot, email);
+            }
+            if (nameChanged) {
+                setName(slot, update.getName());
+            }
+            if (ageChanged) {
+                ages[slot] = update.getAge();
+            }
+            versions[slot]++;
+            return Optional.of(materialize(slot));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Keeps the id of customer when it sorts after every stored row, so a replica loaded
+    // from a scan in id order mirrors the primary's ids.
+    private boolean append(Customer customer, byte[] email) {
+        if (emailIndex.find(email) >= 0) {
+            return false;
+        }
+        long id = customer.getId() != null && customer.getId() > lastId ? customer.getId() : lastId + 1;
+        ensureCapacity(size + 1);
+        int slot = size++;
+        ids[slot] = id;
+        ages[slot] = customer.getAge();
+        versions[slot] = customer.getVersion() == null ? 0 : customer.getVersion();
+        setName(slot, customer.getName());
+        emails[slot] = arena.put(email);
+        live[slot >>> 6] |= 1L << slot;
+        idIndex.put(id, slot);
+        emailIndex.add(slot, email);
+        lastId = id;
+        customer.setId(id);
+        customer.setVersion(versions[slot]);
+        return true;
+    }
+
+    private void setName(int slot, String name) {
+        int space = name.indexOf(' ');
+        if (space < 0) {
+            firstNames[slot] = firstNameDictionary.encode(name);
+            nameRests[slot] = NO_VALUE;
+        } else {
+            firstNames[slot] = firstNameDictionary.encode(name.substring(0, space));
+            nameRests[slot] = arena.put(utf8(name.substring(space + 1)));
+        }
+    }
+
+    private String name(int slot) {
+        String firstName = firstNameDictionary.decode(firstNames[slot]);
+        return nameRests[slot] == NO_VALUE ? firstName : firstName + ' ' + arena.get(nameRests[slot]);
+    }
+
+    private Customer materialize(int slot) {
+        return new Customer(ids[slot], name(slot), ages[slot], arena.get(emails[slot]), versions[slot]);
+    }
+
+    private boolean isLive(int slot) {
+        return (live[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int grown = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, grown);
+        ages = Arrays.copyOf(ages, grown);
+        versions = Arrays.copyOf(versions, grown);
+        firstNames = Arrays.copyOf(firstNames, grown);
+        nameRests = Arrays.copyOf(nameRests, grown);
+        emails = Arrays.copyOf(emails, grown);
+        live = Arrays.copyOf(live, (grown + 63) / 64);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // murmur3 finalizer, spreads sequential ids and weak string hashes over the table
+    private static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb3fe1a85ec53L;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+    /*
+        Append-only UTF-8 storage. A value is a 2-byte length followed by its bytes and
+        never spans two chunks. Its reference is the chunk number and offset in one long.
+     */
+    private static final class ByteArena {
+
+        private static final int CHUNK_BITS = 20;
+        private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+        private static final int MAX_VALUE_LENGTH = 0xFFFF;
+
+        private byte[][] chunks = new byte[1][];
+        private int chunkCount;
+        private int position = CHUNK_SIZE;
+
+        long put(byte[] value) {
+            if (value.length > MAX_VALUE_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Values longer than %s bytes are not supported".formatted(MAX_VALUE_LENGTH));
+            }
+            if (position + 2 + value.length > CHUNK_SIZE) {
+                if (chunkCount == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                }
+                chunks[chunkCount++] = new byte[CHUNK_SIZE];
+                position = 0;
+            }
+            byte[] chunk = chunks[chunkCount - 1];
+            chunk[position] = (byte) (value.length >>> 8);
+            chunk[position + 1] = (byte) value.length;
+            System.arraycopy(value, 0, chunk, position + 2, value.length);
+            long ref = ((long) (chunkCount - 1) << CHUNK_BITS) | position;
+            position += 2 + value.length;
+            return ref;
+        }
+
+        String get(long ref) {
+            byte[] chunk = chunks[(int) (ref >>> CHUNK_BITS)];
+            int offset = (int) (ref & (CHUNK_SIZE - 1));
+            return new String(chunk, offset + 2, length(chunk, offset), StandardCharsets.UTF_8);
+        }
+
+        boolean equalTo(long ref, byte[] value) {
+            byte[] chunk = chunks[(int) (ref >>> CHUNK_BITS)];
+            int offset = (int) (ref & (CHUNK_SIZE - 1));
+            int length = length(chunk, offset);
+            return length == value.length
+                    && Arrays.equals(chunk, offset + 2, offset + 2 + length, value, 0, length);
+        }
+
+        private static int length(byte[] chunk, int offset) {
+            return ((chunk[offset] & 0xFF) << 8) | (chunk[offset + 1] & 0xFF);
+        }
+    }
+
+    /*
+        Distinct first names, stored once and referenced by code.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+
+    /*
+        id -> slot with linear probing. Ids are positive, so 0 marks an empty bucket.
+        Removal shifts the rest of the cluster back instead of leaving tombstones.
+     */
+    private static final class LongIntIndex {
+
+        private long[] keys = new long[INITIAL_CAPACITY * 2];
+        private int[] values = new int[INITIAL_CAPACITY * 2];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+            int removed = values[i];
+            size--;
+            // move back every following entry whose home bucket is not between the gap and it
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    /*
+        email -> slot with linear probing. Buckets hold slot + 1 (0 is empty) and the
+        email's hash, the bytes themselves are compared in the arena.
+     */
+    private final class EmailIndex {
+
+        private int[] slots = new int[INITIAL_CAPACITY * 2];
+        private int[] hashes = new int[INITIAL_CAPACITY * 2];
+        private int size;
+
+        int find(byte[] email) {
+            int hash = hash(email);
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash && arena.equalTo(emails[slots[i] - 1], email)) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void add(int slot, byte[] email) {
+            if (2 * (size + 1) > slots.length) {
+                resize();
+            }
+            insert(slot + 1, hash(email));
+            size++;
+        }
+
+        void remove(int slot) {
+            int hash = hash(emailBytes(slot));
+            int mask = slots.length - 1;
+            int i = hash & mask;
+            while (slots[i] != slot + 1) {
+                i = (i + 1) & mask;
+            }
+            size--;
+            int gap = i;
+            for (int j = (gap + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = hashes[j] & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    slots[gap] = slots[j];
+                    hashes[gap] = hashes[j];
+                    gap = j;
+                }
+            }
+            slots[gap] = 0;
+        }
+
+        private void insert(int slotPlusOne, int hash) {
+            int mask = slots.length - 1;
+            int i = hash & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = slotPlusOne;
+            hashes[i] = hash;
+        }
+
+        private void resize() {
+            int[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            slots = new int[oldSlots.length * 2];
+            hashes = new int[oldSlots.length * 2];
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0) {
+                    insert(oldSlots[i], oldHashes[i]);
+                }
+            }
+        }
+
+        private byte[] emailBytes(int slot) {
+            return utf8(arena.get(emails[slot]));
+        }
+
+        private static int hash(byte[] email) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : email) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        }
+    }
+
+}
@@ -1,30 +1,94 @@
 package com.havefunwith.customer;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+@Profile("!reactive") // ReactiveCustomerController serves these routes in the reactive profile
 @RestController
 @RequestMapping("api/v1/customers")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerBulkRegistrationService customerBulkRegistrationService;
+    private final CustomerExporter customerExporter;
+    private final CustomerCsvImporter customerCsvImporter;
 
     // dependency injection
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerBulkRegistrationService customerBulkRegistrationService,
+                              CustomerExporter customerExporter,
+                              CustomerCsvImporter customerCsvImporter) {
         this.customerService = customerService;
+        this.customerBulkRegistrationService = customerBulkRegistrationService;
+        this.customerExporter = customerExporter;
+        this.customerCsvImporter = customerCsvImporter;
     }
 
+    /*
+        The GETs answer with an ETag, see CustomerETag. When it matches If-None-Match,
+        ResponseEntity handling sends 304 Not Modified before any message converter runs,
+        so the body is never serialized. no-cache lets caches keep the body but makes
+        them revalidate it every time. Bodies are CustomerResponses, not the entities.
+     */
     // @RequestMapping(value = "/api/v1/customers", method = RequestMethod.GET)
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<List<CustomerResponse>> getCustomers() {
+        List<Customer> customers = customerService.getAllCustomers();
+        return withETag(CustomerResponse.from(customers), CustomerETag.of(customers, null));
+    }
+
+    // the filter binds from the minAge, maxAge, emailDomain and namePrefix parameters
+    @GetMapping(params = "limit")
+    public ResponseEntity<CustomerPageResponse> getCustomerPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            CustomerFilter filter) {
+        CustomerPage page = customerService.getCustomers(cursor, limit, filter);
+        return withETag(CustomerPageResponse.from(page), CustomerETag.of(page.customers(), page.nextCursor()));
+    }
+
+    @GetMapping("search")
+    public CustomerPageResponse searchCustomers(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return CustomerPageResponse.from(customerService.searchCustomers(query, cursor, limit));
+    }
+
+    /*
+        Written straight to the servlet response (instead of a StreamingResponseBody)
+        so long exports are not cut off by the async request timeout. Both encodings
+        say they vary with Accept-Encoding, so shared caches keep them apart.
+     */
+    @GetMapping(value = "export", produces = "application/x-ndjson")
+    public void exportCustomers(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!AcceptEncoding.accepts(acceptEncoding, "gzip")) {
+            customerExporter.exportNdjson(response.getOutputStream());
+            return;
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try (GZIPOutputStream outputStream = new GZIPOutputStream(response.getOutputStream(), true)) {
+            customerExporter.exportNdjson(outputStream);
+        }
     }
 
     @GetMapping("{customerId}")
-    public Customer getCustomer(@PathVariable("customerId") Long customerId) {
-        return customerService.getCustomer(customerId);
+    public ResponseEntity<CustomerResponse> getCustomer(@PathVariable("customerId") Long customerId) {
+        Customer customer = customerService.getCustomer(customerId);
+        return withETag(CustomerResponse.from(customer), CustomerETag.of(customer));
     }
 
     @PostMapping
@@ -33,18 +97,46 @@ public class CustomerController {
         return ResponseEntity.ok("Customer successfully added");
     }
 
+    @PostMapping("bulk")
+    public CustomerBulkRegistrationResponse registerCustomers(
+            @RequestBody List<CustomerRegistrationRequest> requests) {
+        return customerBulkRegistrationService.addCustomers(requests);
+    }
+
+    // the InputStream is the raw request body, it is handed to COPY without buffering
+    @PostMapping(value = "import", consumes = "text/csv")
+    public CustomerImportResult importCustomers(
+            @RequestParam(value = "header", defaultValue = "true") boolean header,
+            InputStream csv) {
+        return customerCsvImporter.importCsv(csv, header);
+    }
+
+    // with If-Match, only while the customer still has one of its ETags, else 412
     @DeleteMapping("{customerId}")
-    public ResponseEntity<String> deleteCustomer(@PathVariable Long customerId) {
-        customerService.deleteCustomer(customerId);
+    public ResponseEntity<String> deleteCustomer(
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        customerService.deleteCustomer(customerId, CustomerETag.ifMatch(ifMatch));
         return ResponseEntity.ok("Customer deleted successfully");
     }
 
+    // answers with the ETag of the customer as it is now, also when nothing changed
     @PutMapping("{customerId}")
     public ResponseEntity<String> updateCustomer(
             @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody CustomerUpdateRequest request) {
-        customerService.updateCustomer(customerId, request);
-        return ResponseEntity.ok("Customer updated successfully.");
+        Customer customer = customerService.updateCustomer(customerId, request, CustomerETag.ifMatch(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(CustomerETag.of(customer))
+                .body("Customer updated successfully.");
+    }
+
+    private static <T> ResponseEntity<T> withETag(T body, String eTag) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 
 }
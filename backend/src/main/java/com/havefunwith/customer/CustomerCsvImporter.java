@@ -0,0 +1,162 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.customer.CustomerRegistrationResult.Status;
+import com.havefunwith.exception.RequestValidationException;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/*
+    Loads a CSV body (name,email,age) with Postgres COPY.
+
+    The body is piped into COPY ... FROM STDIN as it arrives, so it is never held in
+    memory. Rows land in a temporary staging table, which like an UNLOGGED table skips
+    the WAL, but is private to the session so concurrent imports never see each other.
+    Valid rows are then merged into customer in one statement, letting the
+    customer_email_unique constraint decide which emails are duplicates.
+ */
+@Log4j2
+@Component
+public class CustomerCsvImporter {
+
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    private static final String VALID_ROW = """
+            name <> ''
+            AND email ~ '^[^@]+@[^@]+$'
+            AND CASE WHEN age ~ '^[0-9]{1,3}$' THEN age::int END BETWEEN 0 AND 150
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CustomerEmailFilter customerEmailFilter;
+
+    public CustomerCsvImporter(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               CustomerEmailFilter customerEmailFilter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.customerEmailFilter = customerEmailFilter;
+    }
+
+    public CustomerImportResult importCsv(InputStream csv, boolean header) {
+        return transactionTemplate.execute(status -> {
+            createStagingTable();
+            long rowsRead = copyIntoStagingTable(csv, header);
+            long rowsImported = mergeIntoCustomer();
+            addImportedEmailsToFilter();
+            List<CustomerImportResult.RejectedRow> rejectedRows = selectRejectedRows();
+            log.info("importCsv :: {} OF {} ROWS IMPORTED", Unbox.box(rowsImported), Unbox.box(rowsRead));
+            return new CustomerImportResult(rowsRead, rowsImported, rowsRead - rowsImported, rejectedRows);
+        });
+    }
+
+    private void createStagingTable() {
+        var sql = """
+                CREATE TEMPORARY TABLE customer_import (
+                    row_no BIGINT GENERATED ALWAYS AS IDENTITY,
+                    name TEXT,
+                    email TEXT,
+                    age TEXT,
+                    imported BOOLEAN NOT NULL DEFAULT false
+                ) ON COMMIT DROP
+                """;
+        jdbcTemplate.execute(sql);
+    }
+
+    private long copyIntoStagingTable(InputStream csv, boolean header) {
+        var sql = """
+                COPY customer_import (name, email, age)
+                FROM STDIN WITH (FORMAT csv, HEADER %s)
+                """.formatted(header);
+        // the connection bound to the current transaction, so COPY sees the temp table
+        Connection connection = DataSourceUtils.getConnection(dataSource());
+        try {
+            return connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(sql, csv);
+        } catch (SQLException e) {
+            // class 22 is "data exception": the body is not the CSV we expect
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new RequestValidationException("CSV could not be imported: " + e.getMessage());
+            }
+            throw new IllegalStateException("COPY into customer_import failed", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long mergeIntoCustomer() {
+        // the first row of every email wins, later rows with the same email are duplicates
+        var sql = """
+                WITH candidates AS (
+                    SELECT DISTINCT ON (email) row_no, name, email, age::int AS age
+                    FROM customer_import
+                    WHERE %s
+                    ORDER BY email, row_no
+                ), inserted AS (
+                    INSERT INTO customer (name, email, age)
+                    SELECT name, email, age
+                    FROM candidates
+                    ORDER BY row_no
+                    ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                    RETURNING email
+                )
+                UPDATE customer_import i
+                SET imported = true
+                FROM candidates c
+                JOIN inserted USING (email)
+                WHERE i.row_no = c.row_no
+                """.formatted(VALID_ROW);
+        return jdbcTemplate.update(sql);
+    }
+
+    // a rollback after this leaves extra emails in the filter, which only costs a query
+    private void addImportedEmailsToFilter() {
+        var sql = """
+                SELECT email
+                FROM customer_import
+                WHERE imported
+                """;
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> customerEmailFilter.put(rs.getString("email")));
+    }
+
+    private List<CustomerImportResult.RejectedRow> selectRejectedRows() {
+        var sql = """
+                SELECT row_no, email, (%s) AS valid
+                FROM customer_import
+                WHERE NOT imported
+                ORDER BY row_no
+                LIMIT ?
+                """.formatted(VALID_ROW);
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new CustomerImportResult.RejectedRow(
+                        rs.getLong("row_no"),
+                        rs.getString("email"),
+                        rs.getBoolean("valid") ? Status.DUPLICATE : Status.INVALID
+                ),
+                MAX_REPORTED_REJECTIONS);
+    }
+
+    private DataSource dataSource() {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        if (dataSource == null) {
+            throw new IllegalStateException("JdbcTemplate has no DataSource");
+        }
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+    Encodes the last id of a page into an opaque token, so clients never build
+    cursors themselves and the keyset (WHERE id > ?) stays an implementation detail.
+ */
+public final class CustomerCursor {
+
+    private CustomerCursor() {}
+
+    public static String encode(long afterId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(Long.toString(afterId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String cursor) {
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+            return Long.parseLong(new String(decoded, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Cursor [%s] is not valid".formatted(cursor));
+        }
+    }
+
+}
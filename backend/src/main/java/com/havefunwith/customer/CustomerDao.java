@@ -1,22 +1,90 @@
 package com.havefunwith.customer;
 
+import com.havefunwith.datasource.PrimaryQuery;
+import com.havefunwith.datasource.ReadOnlyQuery;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDao {
 
+     @ReadOnlyQuery
      List<Customer> selectAllCustomers();
 
+     @ReadOnlyQuery
+     List<Customer> selectCustomersAfter(Long afterId, int limit);
+
+     /*
+        Like selectCustomersAfter, only the customers filter matches.
+      */
+     @ReadOnlyQuery
+     List<Customer> selectCustomersAfter(CustomerFilter filter, Long afterId, int limit);
+
+     @ReadOnlyQuery
+     void streamAllCustomers(int fetchSize, Consumer<Customer> consumer);
+
+     @ReadOnlyQuery
      Optional<Customer> selectCustomerById(Long id);
 
-     void insertCustomer(Customer customer);
+     /*
+        Like selectCustomerById, read from the primary even with replicas, for rows that
+        are kept beyond the request, see CustomerCache.
+      */
+     @PrimaryQuery
+     default Optional<Customer> selectCustomerByIdFromPrimary(Long id) {
+          return selectCustomerById(id);
+     }
+
+     /*
+        Customers whose name or email has a word similar to query, by pg_trgm's
+        word_similarity, the most similar first and ties by id. Skips offset matches and
+        returns at most limit.
+      */
+     @ReadOnlyQuery
+     List<Customer> searchCustomers(String query, int offset, int limit);
 
-     void deleteCustomer(Long id);
+     /*
+        Inserts customer and sets its generated id. Returns false, without inserting,
+        when the email is already taken.
+      */
+     boolean insertCustomer(Customer customer);
 
-     void updateCustomer(Customer customer);
+     /*
+        One update count per customer, as Statement.executeBatch reports them: 1 when it
+        was inserted, 0 when its email was taken, Statement.SUCCESS_NO_INFO when the
+        driver does not tell.
+      */
+     int[] insertCustomers(List<Customer> customers);
 
+     /*
+        Returns false when there was no customer with id to delete.
+      */
+     boolean deleteCustomer(Long id);
+
+     /*
+        Like deleteCustomer, only while the row still has version. Returns false when the
+        customer does not exist or has another version.
+      */
+     boolean deleteCustomer(Long id, long version);
+
+     /*
+        Applies the non-null fields of customer to the row with its id, in a single
+        statement. When customer has a version the row must still have that version.
+        Returns the updated row, or empty when no row was changed because it does not
+        exist, its version moved on, or the values are already the same.
+      */
+     Optional<Customer> updateCustomer(Customer customer);
+
+     @ReadOnlyQuery
      boolean existsPersonWithEmail(String email);
 
+     @ReadOnlyQuery
+     Set<String> selectExistingEmails(Collection<String> emails);
+
+     @ReadOnlyQuery
      boolean existsPersonById(Long id);
 
 }
@@ -0,0 +1,87 @@
+package com.havefunwith.customer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+    Entity tags for customers. A customer's is strong, its version, which every change
+    bumps, see CustomerDao.updateCustomer. A list's is a digest of the ids and versions it
+    holds and of its next cursor, so it changes when any of them is updated, added or
+    deleted, without hashing the serialized body. It is weak: the gzipped and the plain
+    body are the same list but not the same bytes, and Tomcat does not compress responses
+    with a strong tag. If-None-Match compares weakly, so lists revalidate all the same.
+ */
+public final class CustomerETag {
+
+    private CustomerETag() {
+    }
+
+    public static String of(Customer customer) {
+        return "\"" + customer.getVersion() + "\"";
+    }
+
+    public static String of(Collection<Customer> customers, String nextCursor) {
+        MessageDigest digest = sha256();
+        byte[] row = new byte[2 * Long.BYTES];
+        for (Customer customer : customers) {
+            putLong(row, 0, customer.getId());
+            putLong(row, Long.BYTES, customer.getVersion());
+            digest.update(row);
+        }
+        if (nextCursor != null) {
+            digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+        }
+        // 128 bits of the digest are plenty to tell two lists apart
+        byte[] hash = digest.digest();
+        return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+    }
+
+    /*
+        What an If-Match header accepts, null when it is absent. Weak tags never match,
+        If-Match compares strongly, and neither do tags that are not a version: the
+        versions are then empty.
+     */
+    public static CustomerIfMatch ifMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        if (ifMatch.strip().equals("*")) {
+            return CustomerIfMatch.ANY;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.strip();
+            if (trimmed.length() < 3 || trimmed.charAt(0) != '"' || trimmed.charAt(trimmed.length() - 1) != '"') {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(trimmed.substring(1, trimmed.length() - 1)));
+            } catch (NumberFormatException e) {
+                // a list tag or a foreign one, it is not the tag of any version
+            }
+        }
+        return CustomerIfMatch.of(versions);
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
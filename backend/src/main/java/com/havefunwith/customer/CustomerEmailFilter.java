@@ -0,0 +1,258 @@
+package com.havefunwith.customer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Bloom filter over every customer email. mightContain answering false means the email
+    is definitely not taken, so the caller can skip the database. Only a true answer needs
+    the real query.
+
+    A Bloom filter cannot forget, so deletes and email changes only make it stale: the old
+    email keeps answering "maybe", which costs a query but is never wrong. Once enough
+    entries are stale the filter is rebuilt from a streaming scan in the background, the
+    same way it is built at startup. Until the first build is done every email is a "maybe".
+
+    Emails written by another instance are missing here until the next rebuild, so the
+    unique constraint stays the final word on duplicates.
+ */
+@Log4j2
+@Component
+public class CustomerEmailFilter {
+
+    private static final int SCAN_FETCH_SIZE = 10_000;
+
+    // the scan blocks on JDBC for as long as the table takes, off the common pool
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "customer-email-filter-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CustomerDao customerDao;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final long rebuildAfterStaleEntries;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicLong entries = new AtomicLong();
+    // null until the first build is done
+    private volatile Bits current;
+    // set while a rebuild scans the table, so concurrent writes reach both filters
+    private volatile Bits building;
+
+    public CustomerEmailFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                               @Value("${customer.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${customer.email-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                               @Value("${customer.email-filter.rebuild-after-stale-entries:100000}") long rebuildAfterStaleEntries,
+                               MeterRegistry meterRegistry) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        this.customerDao = customerDao;
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.rebuildAfterStaleEntries = rebuildAfterStaleEntries;
+
+        Gauge.builder("customer.email.filter.false.positive.probability", this,
+                        f -> f.falsePositiveProbability)
+                .description("Configured false positive probability")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.estimated.false.positive.probability", this,
+                        CustomerEmailFilter::estimatedFalsePositiveProbability)
+                .description("False positive probability given the bits set so far")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.memory", this, CustomerEmailFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.entries", entries, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("customer.email.filter.stale.entries", staleEntries, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuildAsync();
+    }
+
+    public boolean mightContain(String email) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(email);
+    }
+
+    /*
+        Reads building before current: rebuild publishes current before it clears building,
+        so a put that misses the filter being built always finds it as current.
+     */
+    public void put(String email) {
+        Bits next = building;
+        Bits bits = current;
+        if (next != null) {
+            next.put(email);
+        }
+        if (bits != null && bits != next) {
+            bits.put(email);
+        }
+        entries.incrementAndGet();
+    }
+
+    /*
+        Called when an email is deleted or replaced.
+     */
+    public void markStale() {
+        if (staleEntries.incrementAndGet() >= rebuildAfterStaleEntries) {
+            rebuildAsync();
+        }
+    }
+
+    public CompletableFuture<Void> rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(this::rebuild, rebuildExecutor)
+                .whenComplete((ignored, e) -> {
+                    rebuilding.set(false);
+                    if (e != null) {
+                        log.warn("Email filter rebuild failed, emails fall through to the database", e);
+                    }
+                });
+    }
+
+    private void rebuild() {
+        // room for the rows we already know about, so a growing table does not fill the filter
+        long capacity = Math.max(expectedInsertions, 2 * entries.get());
+        // published before the scan starts: a write committed later reaches it through put
+        Bits next = new Bits(capacity, falsePositiveProbability);
+        building = next;
+        // what is counted during the scan carries over to the next rebuild
+        long staleAtStart = staleEntries.get();
+        long entriesAtStart = entries.get();
+        long[] scanned = {0};
+        try {
+            customerDao.streamAllCustomers(SCAN_FETCH_SIZE, customer -> {
+                next.put(customer.getEmail());
+                scanned[0]++;
+            });
+            staleEntries.addAndGet(-staleAtStart);
+            // a put during the scan may be counted twice, the count only sizes the next filter
+            entries.addAndGet(scanned[0] - entriesAtStart);
+            current = next;
+            log.info("Email filter rebuilt with {} emails, {} bytes", Unbox.box(scanned[0]), Unbox.box(next.memoryBytes()));
+        } finally {
+            building = null;
+        }
+    }
+
+    @PreDestroy
+    void stopRebuilds() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private double estimatedFalsePositiveProbability() {
+        Bits bits = current;
+        return bits == null ? 1.0 : bits.estimatedFalsePositiveProbability();
+    }
+
+    private long memoryBytes() {
+        Bits bits = current;
+        return bits == null ? 0 : bits.memoryBytes();
+    }
+
+    /*
+        Bit array sized with the usual m = -n ln p / (ln 2)^2 and k = m / n ln 2. The k
+        positions come from one 64-bit hash split in two (Kirsch-Mitzenmacher).
+     */
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        Bits(long expectedInsertions, double falsePositiveProbability) {
+            long bits = (long) Math.ceil(
+                    -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = wordCount * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String email) {
+            long hash = hash(email);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String email) {
+            long hash = hash(email);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double estimatedFalsePositiveProbability() {
+            long set = 0;
+            for (int i = 0; i < words.length(); i++) {
+                set += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) set / bitCount, hashCount);
+        }
+
+        long memoryBytes() {
+            return words.length() * 8L;
+        }
+
+        private long index(int combined) {
+            return (combined & 0xFFFFFFFFL) % bitCount;
+        }
+
+        // FNV-1a over the UTF-8 bytes, finished with the murmur3 avalanche step
+        private static long hash(String email) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb3fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+}
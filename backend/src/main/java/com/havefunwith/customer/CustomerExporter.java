@@ -0,0 +1,51 @@
+package com.havefunwith.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/*
+    Writes every customer as newline-delimited JSON while the rows are still being
+    read, so memory use does not depend on the size of the table.
+ */
+@Component
+public class CustomerExporter {
+
+    private final CustomerDao customerDao;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public CustomerExporter(@Qualifier("jdbc") CustomerDao customerDao,
+                            ObjectMapper objectMapper,
+                            @Value("${customer.export.fetch-size:1000}") int fetchSize) {
+        this.customerDao = customerDao;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public void exportNdjson(OutputStream outputStream) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(Customer.class)
+                .withRootValueSeparator("\n")
+                .writeValues(outputStream)) {
+            long[] written = {0};
+            customerDao.streamAllCustomers(fetchSize, customer -> {
+                try {
+                    writer.write(customer);
+                    // push the first row and every full fetch out to the client right away
+                    if (written[0]++ % fetchSize == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+}
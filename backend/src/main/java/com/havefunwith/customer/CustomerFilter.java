@@ -0,0 +1,80 @@
+package com.havefunwith.customer;
+
+import java.util.Locale;
+
+/*
+    Narrows a customer listing. Every field is optional and the set ones must all hold:
+    age within minAge and maxAge, both inclusive, the part of the email after the @ equal
+    to emailDomain and the name starting with namePrefix, both ignoring case.
+
+    Which fields are set is the filter's shape. The DAOs compile each shape once, see
+    CustomerFilterQuery, the values are only ever bound as parameters.
+ */
+public record CustomerFilter(
+        Integer minAge,
+        Integer maxAge,
+        String emailDomain,
+        String namePrefix
+) {
+
+    static final int MIN_AGE = 1;
+    static final int MAX_AGE = 1 << 1;
+    static final int EMAIL_DOMAIN = 1 << 2;
+    static final int NAME_PREFIX = 1 << 3;
+    static final int SHAPES = 1 << 4;
+
+    public static final CustomerFilter NONE = new CustomerFilter(null, null, null, null);
+
+    public boolean isEmpty() {
+        return shape() == 0;
+    }
+
+    int shape() {
+        return (minAge != null ? MIN_AGE : 0)
+                | (maxAge != null ? MAX_AGE : 0)
+                | (emailDomain != null ? EMAIL_DOMAIN : 0)
+                | (namePrefix != null ? NAME_PREFIX : 0);
+    }
+
+    /*
+        The same conditions as the compiled SQL, for the in-memory DAOs.
+     */
+    public boolean matches(String name, int age, String email) {
+        if (minAge != null && age < minAge) {
+            return false;
+        }
+        if (maxAge != null && age > maxAge) {
+            return false;
+        }
+        if (emailDomain != null) {
+            int at = email.indexOf('@');
+            // split_part(email, '@', 2) ends at the next @, if there is one
+            int end = at < 0 ? -1 : email.indexOf('@', at + 1);
+            String domain = at < 0 ? "" : email.substring(at + 1, end < 0 ? email.length() : end);
+            if (!domain.equalsIgnoreCase(emailDomain)) {
+                return false;
+            }
+        }
+        return namePrefix == null || name.regionMatches(true, 0, namePrefix, 0, namePrefix.length());
+    }
+
+    // the lower case domain the email_domain expression index is built on
+    String emailDomainKey() {
+        return emailDomain.toLowerCase(Locale.ROOT);
+    }
+
+    // lower case LIKE pattern for the prefix, with its wildcards and escape character escaped
+    String namePattern() {
+        String prefix = namePrefix.toLowerCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.havefunwith.customer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+    The SQL for a keyset page of the customers matching one CustomerFilter shape. The
+    query of every shape is built once, so a shape always sends the same SQL text: after
+    a few executions on a connection (pgjdbc's prepareThreshold) the driver keeps it as a
+    server-side prepared statement, and Hibernate keeps its parsed native query, instead
+    of parsing and planning it again for every page.
+
+    Each condition has an index to serve it, see V6__Customer_Filter_Indexes.sql.
+ */
+public final class CustomerFilterQuery {
+
+    private static final CustomerFilterQuery[] BY_SHAPE = new CustomerFilterQuery[CustomerFilter.SHAPES];
+
+    static {
+        for (int shape = 0; shape < CustomerFilter.SHAPES; shape++) {
+            BY_SHAPE[shape] = new CustomerFilterQuery(shape);
+        }
+    }
+
+    private final int shape;
+    private final String sql;
+    private final String nativeSql;
+
+    private CustomerFilterQuery(int shape) {
+        this.shape = shape;
+        this.sql = compile(shape, false);
+        this.nativeSql = compile(shape, true);
+    }
+
+    public static CustomerFilterQuery of(CustomerFilter filter) {
+        return BY_SHAPE[filter.shape()];
+    }
+
+    // with JDBC ? placeholders
+    public String sql() {
+        return sql;
+    }
+
+    // with the ?1, ?2, ... placeholders of a JPA native query
+    public String nativeSql() {
+        return nativeSql;
+    }
+
+    /*
+        The values to bind, in placeholder order. filter must have this query's shape.
+     */
+    public Object[] parameters(CustomerFilter filter, long afterId, int limit) {
+        if (filter.shape() != shape) {
+            throw new IllegalArgumentException("Filter does not have the shape of this query");
+        }
+        List<Object> parameters = new ArrayList<>(6);
+        parameters.add(afterId);
+        if (filter.minAge() != null) {
+            parameters.add(filter.minAge());
+        }
+        if (filter.maxAge() != null) {
+            parameters.add(filter.maxAge());
+        }
+        if (filter.emailDomain() != null) {
+            parameters.add(filter.emailDomainKey());
+        }
+        if (filter.namePrefix() != null) {
+            parameters.add(filter.namePattern());
+        }
+        parameters.add(limit);
+        return parameters.toArray();
+    }
+
+    private static String compile(int shape, boolean numbered) {
+        int[] placeholders = {0};
+        Supplier<String> next = () -> numbered ? "?" + ++placeholders[0] : "?";
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > %s
+                """.formatted(next.get()));
+        if ((shape & CustomerFilter.MIN_AGE) != 0) {
+            sql.append("AND age >= ").append(next.get()).append('\n');
+        }
+        if ((shape & CustomerFilter.MAX_AGE) != 0) {
+            sql.append("AND age <= ").append(next.get()).append('\n');
+        }
+        if ((shape & CustomerFilter.EMAIL_DOMAIN) != 0) {
+            // must stay the expression of customer_email_domain_idx
+            sql.append("AND lower(split_part(email, '@', 2)) = ").append(next.get()).append('\n');
+        }
+        if ((shape & CustomerFilter.NAME_PREFIX) != 0) {
+            // a prefix range of customer_name_prefix_idx, backslash is LIKE's default escape
+            // character, see CustomerFilter.namePattern
+            sql.append("AND lower(name) LIKE ").append(next.get()).append('\n');
+        }
+        return sql.append("ORDER BY id\n")
+                .append("LIMIT ").append(next.get()).append('\n')
+                .toString();
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.havefunwith.customer;
+
+import java.util.Set;
+
+/*
+    What an If-Match header accepts, see CustomerETag.ifMatch: any version for "*", else
+    the versions it lists. Either way a customer that does not exist fails it.
+ */
+public record CustomerIfMatch(boolean any, Set<Long> versions) {
+
+    public static final CustomerIfMatch ANY = new CustomerIfMatch(true, Set.of());
+
+    public static CustomerIfMatch of(Set<Long> versions) {
+        return new CustomerIfMatch(false, Set.copyOf(versions));
+    }
+
+    public boolean accepts(long version) {
+        return any || versions.contains(version);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.customer.CustomerRegistrationResult.Status;
+
+import java.util.List;
+
+/*
+    rejectedRows is capped, rowsRejected always holds the full count.
+ */
+public record CustomerImportResult(
+        long rowsRead,
+        long rowsImported,
+        long rowsRejected,
+        List<RejectedRow> rejectedRows
+) {
+
+    // row is the 1-based position of the record in the CSV body, not counting the header
+    public record RejectedRow(
+            long row,
+            String email,
+            Status status
+    ) {
+    }
+
+}
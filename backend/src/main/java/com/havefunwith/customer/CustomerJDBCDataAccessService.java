@@ -1,19 +1,37 @@
 package com.havefunwith.customer;
 
-import lombok.extern.slf4j.Slf4j;
+import com.havefunwith.exception.DuplicatedResourceException;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /*
     Data Access Layer or DAO (Data Access Object) Layer
  */
-@Slf4j
+@Log4j2
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final int BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
 
@@ -25,93 +43,252 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public List<Customer> selectAllCustomers() {
         var sql = """
-                SELECT id, name, email, age 
+                SELECT id, name, email, age, version
                 FROM customer;
                 """;
-        log.info("selectAllCustomers ::");
+        log.debug("selectAllCustomers ::");
         return jdbcTemplate.query(sql, customerRowMapper);
     }
 
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        log.debug("selectCustomersAfter ::");
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(CustomerFilter filter, Long afterId, int limit) {
+        CustomerFilterQuery query = CustomerFilterQuery.of(filter);
+        log.debug("selectCustomersAfter :: filtered");
+        return jdbcTemplate.query(query.sql(), customerRowMapper, query.parameters(filter, afterId, limit));
+    }
+
+    /*
+        Postgres only honours the fetch size inside a transaction. Without one the
+        driver reads the whole result set into memory before the first row is mapped.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                """;
+        log.debug("streamAllCustomers ::");
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(customerRowMapper.mapRow(rs, rs.getRow()))
+        );
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         var sql = """
-                SELECT id, name, email, age 
+                SELECT id, name, email, age, version
                 FROM customer
                 WHERE id = ?
                 """;
-        log.info("selectCustomerById ::");
+        log.debug("selectCustomerById ::");
         return jdbcTemplate.query(sql, customerRowMapper, id)
                 .stream()
                 .findFirst();
     }
 
+    /*
+        <% is word_similarity at or above pg_trgm.word_similarity_threshold, which the GIN
+        trigram indexes answer with a bitmap scan each. Only the matches are ranked.
+     */
+    @Override
+    public List<Customer> searchCustomers(String query, int offset, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE ? <% name OR ? <% email
+                ORDER BY GREATEST(word_similarity(?, name), word_similarity(?, email)) DESC, id
+                LIMIT ?
+                OFFSET ?
+                """;
+        log.debug("searchCustomers ::");
+        return jdbcTemplate.query(sql, customerRowMapper, query, query, query, query, limit, offset);
+    }
+
+    /*
+        The unique email constraint decides: a taken email inserts nothing and returns
+        no id, so no separate existence check is needed and concurrent registrations
+        cannot race past one.
+     */
     @Override
-    public void insertCustomer(Customer customer) {
+    public boolean insertCustomer(Customer customer) {
         var sql = """
                 INSERT INTO customer (name, email, age)
                 VALUES (?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
                 """;
-        int result = jdbcTemplate.update(sql,
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class,
                 customer.getName(),
                 customer.getEmail(),
                 customer.getAge()
         );
-        log.info("insertCustomer :: " + result + " ROW ADDED");
+        // Unbox.box hands primitives to the logger through a reused buffer instead of a boxed Integer
+        log.debug("insertCustomer :: {} ROW ADDED", Unbox.box(ids.size()));
+        if (ids.isEmpty()) {
+            return false;
+        }
+        customer.setId(ids.get(0));
+        return true;
+    }
+
+    /*
+        One INSERT per chunk of BATCH_SIZE rows, bound as three arrays, and each chunk
+        commits on its own. A single statement fires the statement level stats trigger
+        once, which upserts the buckets in key order. A batch of single row INSERTs would
+        fire it per row and lock the buckets in row order, so two bulk registrations on
+        the same stripe could deadlock. Rows whose email is already taken are skipped by
+        the database and reported with a 0.
+     */
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] result = new int[customers.size()];
+        for (int from = 0; from < customers.size(); from += BATCH_SIZE) {
+            List<Customer> chunk = customers.subList(from, Math.min(from + BATCH_SIZE, customers.size()));
+            List<String> inserted = jdbcTemplate.query(
+                    connection -> prepareInsertCustomers(connection, chunk),
+                    (rs, rowNum) -> rs.getString(1));
+            countInserted(chunk, new HashSet<>(inserted), result, from);
+        }
+        if (log.isDebugEnabled()) {
+            long added = Arrays.stream(result).filter(count -> count > 0).count();
+            log.debug("insertCustomers :: {} ROWS ADDED", Unbox.box(added));
+        }
+        return result;
+    }
+
+    // shared with the JPA DAO, which runs it on the session's connection
+    static PreparedStatement prepareInsertCustomers(Connection connection, List<Customer> customers)
+            throws SQLException {
+        var sql = """
+                INSERT INTO customer (name, email, age)
+                SELECT * FROM unnest(?::text[], ?::text[], ?::int[])
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email
+                """;
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            statement.setArray(1, connection.createArrayOf("text", customers.stream().map(Customer::getName).toArray()));
+            statement.setArray(2, connection.createArrayOf("text", customers.stream().map(Customer::getEmail).toArray()));
+            statement.setArray(3, connection.createArrayOf("int4", customers.stream().map(Customer::getAge).toArray()));
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /*
+        1 for the rows whose email RETURNING named, 0 for the others. Of rows sharing an
+        email only the first one was inserted, the ones after it conflicted with it.
+     */
+    static void countInserted(List<Customer> chunk, Set<String> inserted, int[] counts, int offset) {
+        for (int i = 0; i < chunk.size(); i++) {
+            counts[offset + i] = inserted.remove(chunk.get(i).getEmail()) ? 1 : 0;
+        }
     }
 
     @Override
-    public void deleteCustomer(Long id) {
-        log.info("CustomerJDBCDataAccessService :: deleteCustomer ====> " + id);
+    public boolean deleteCustomer(Long id) {
+        log.debug("CustomerJDBCDataAccessService :: deleteCustomer ====> {}", id);
         var sql = """
                 DELETE 
                 FROM customer
                 WHERE id = ?
+                RETURNING id
                 """;
-        int result = jdbcTemplate.update(sql, id);
-        log.info("deleteCustomer :: " + result + " ROW DELETED");
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, id);
+        log.debug("deleteCustomer :: {} ROW DELETED", Unbox.box(ids.size()));
+        return !ids.isEmpty();
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        var sql = "";
+    public boolean deleteCustomer(Long id, long version) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = ? AND version = ?
+                RETURNING id
+                """;
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, id, version);
+        log.debug("deleteCustomer :: {} ROW DELETED", Unbox.box(ids.size()));
+        return !ids.isEmpty();
+    }
 
+    /*
+        One round trip: only the columns present on customer are set, the version guard
+        and the IS DISTINCT FROM checks run in the WHERE clause, and RETURNING hands back
+        the new row. A no-op update matches no row, so it does not bump the version.
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer customer) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (customer.getName() != null) {
+            columns.add("name");
+            values.add(customer.getName());
+        }
         if (customer.getEmail() != null) {
-            sql = """
-                    UPDATE customer
-                    SET email = ?
-                    WHERE id = ? 
-                    """;
-            jdbcTemplate.update(
-                    sql,
-                    customer.getEmail(),
-                    customer.getId());
-            log.info("updateCustomer :: " +  customer.getEmail() + " UPDATED");
+            columns.add("email");
+            values.add(customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            columns.add("age");
+            values.add(customer.getAge());
+        }
+        if (columns.isEmpty()) {
+            return Optional.empty();
         }
 
-        if (customer.getName() != null) {
-            sql = """
-                    UPDATE customer 
-                    SET name = ?
-                    WHERE id = ?
-                    """;
-            jdbcTemplate.update(
-                    sql,
-                    customer.getName(),
-                    customer.getId());
-            log.info("updateCustomer :: " +  customer.getName() + " UPDATED");
+        List<Object> args = new ArrayList<>(values);
+        args.add(customer.getId());
+        String versionGuard = "";
+        if (customer.getVersion() != null) {
+            versionGuard = "AND version = ?";
+            args.add(customer.getVersion());
         }
+        args.addAll(values);
 
-        if (customer.getAge() != null) {
-            sql = """
-                    UPDATE customer
-                    SET age = ?
-                    WHERE id = ?
-                    """;
-            jdbcTemplate.update(
-                    sql,
-                    customer.getAge(),
-                    customer.getId());
-            log.info("updateCustomer :: " +  customer.getAge() + " UPDATED");
+        var sql = """
+                UPDATE customer
+                SET %s, version = version + 1
+                WHERE id = ?
+                %s
+                AND (%s)
+                RETURNING id, name, email, age, version
+                """.formatted(
+                columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", ")),
+                versionGuard,
+                columns.stream().map(column -> column + " IS DISTINCT FROM ?").collect(Collectors.joining(" OR "))
+        );
+        try {
+            Optional<Customer> updated = jdbcTemplate.query(sql, customerRowMapper, args.toArray())
+                    .stream()
+                    .findFirst();
+            log.debug("updateCustomer :: {} {}", customer.getId(), updated.isPresent() ? "UPDATED" : "NOT UPDATED");
+            return updated;
+        } catch (DuplicateKeyException e) {
+            throw new DuplicatedResourceException(
+                    "Customer with email [%s] already exist.".formatted(customer.getEmail()));
         }
     }
 
@@ -126,6 +303,25 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
         return count != null && count > 0;
     }
 
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY (?)
+                """;
+        log.debug("selectExistingEmails ::");
+        List<String> existing = jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("text", emails.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString("email")
+        );
+        return new HashSet<>(existing);
+    }
+
     @Override
     public boolean existsPersonById(Long id) {
         var sql = """
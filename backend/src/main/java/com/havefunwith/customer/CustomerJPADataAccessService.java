@@ -1,9 +1,25 @@
 package com.havefunwith.customer;
 
+import com.havefunwith.exception.DuplicatedResourceException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /*
     Data Access Service Layer
@@ -11,10 +27,14 @@ import java.util.Optional;
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
 
+    private static final String EMAIL_UNIQUE_CONSTRAINT = "customer_email_unique";
+
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository, EntityManager entityManager) {
         this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -22,14 +42,102 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Customer> selectCustomersAfter(CustomerFilter filter, Long afterId, int limit) {
+        CustomerFilterQuery query = CustomerFilterQuery.of(filter);
+        Query nativeQuery = entityManager.createNativeQuery(query.nativeSql(), Customer.class);
+        Object[] parameters = query.parameters(filter, afterId, limit);
+        for (int i = 0; i < parameters.length; i++) {
+            nativeQuery.setParameter(i + 1, parameters[i]);
+        }
+        return nativeQuery.getResultList();
+    }
+
+    /*
+        Scrolls over the table instead of loading it, and detaches every entity once
+        it has been consumed so the persistence context does not grow with the table.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = entityManager
+                .createQuery("SELECT c FROM Customer c", Customer.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            customers.forEach(customer -> {
+                consumer.accept(customer);
+                entityManager.detach(customer);
+            });
+        }
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public List<Customer> searchCustomers(String query, int offset, int limit) {
+        return customerRepository.searchByNameOrEmail(query, offset, limit);
+    }
+
+    /*
+        Flushing right away makes the unique email constraint fail here rather than at
+        commit. A plain persist keeps the pooled id allocation, which a native
+        INSERT ... ON CONFLICT would bypass. Only a violation of the email constraint
+        means the email is taken, any other one is rethrown. A taken email still marks a
+        caller's transaction rollback-only, CustomerService registers outside of one.
+     */
+    @Override
+    public boolean insertCustomer(Customer customer) {
+        Long id = customer.getId();
+        Long version = customer.getVersion();
+        try {
+            customerRepository.saveAndFlush(customer);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (!violatesUniqueEmail(e)) {
+                throw e;
+            }
+            // persist already handed out a pooled id and the initial version
+            customer.setId(id);
+            customer.setVersion(version);
+            return false;
+        }
+    }
+
+    /*
+        The JDBC DAO's statement on the session's connection: a taken email skips its row
+        with a 0 instead of failing every row, as saveAll would. All rows go in one
+        statement, the transaction spans the call, and chunks of it would lock the stats
+        buckets chunk after chunk, which concurrent calls could do in different orders.
+        The ids come from the column default, not from the pooled allocation.
+     */
+    @Override
+    @Transactional
+    public int[] insertCustomers(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return new int[0];
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Set<String> inserted = new HashSet<>();
+            try (PreparedStatement statement = CustomerJDBCDataAccessService.prepareInsertCustomers(connection, customers);
+                 ResultSet emails = statement.executeQuery()) {
+                while (emails.next()) {
+                    inserted.add(emails.getString(1));
+                }
+            }
+            int[] result = new int[customers.size()];
+            CustomerJDBCDataAccessService.countInserted(customers, inserted, result, 0);
+            return result;
+        });
     }
 
     @Override
@@ -37,19 +145,60 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.existsCustomerByEmail(email);
     }
 
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customerRepository.findEmailsIn(emails);
+    }
+
     @Override
     public boolean existsPersonById(Long id) {
         return customerRepository.existsCustomerById(id);
     }
 
     @Override
-    public void deleteCustomer(Long id) {
-        customerRepository.deleteById(id);
+    public boolean deleteCustomer(Long id) {
+        return customerRepository.deleteCustomerById(id) > 0;
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id, long version) {
+        return customerRepository.deleteCustomerByIdAndVersion(id, version) > 0;
     }
 
+    /*
+        A taken email is the email constraint failing. Unlike the JDBC and R2DBC DAOs, no
+        DuplicateKeyException tells it apart, every violation is rethrown as it is.
+     */
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public Optional<Customer> updateCustomer(Customer customer) {
+        // With open-in-view a customer this request read already, to check an If-Match
+        // header, is still managed, and the RETURNING row would resolve to that instance
+        // with the fields from before the update. Nothing is pending outside of a write.
+        entityManager.clear();
+        try {
+            return customerRepository.updateCustomer(
+                    customer.getId(),
+                    customer.getName(),
+                    customer.getEmail(),
+                    customer.getAge(),
+                    customer.getVersion());
+        } catch (DataIntegrityViolationException e) {
+            if (!violatesUniqueEmail(e)) {
+                throw e;
+            }
+            throw new DuplicatedResourceException(
+                    "Customer with email [%s] already exist.".formatted(customer.getEmail()));
+        }
+    }
+
+    // Spring translates Hibernate's ConstraintViolationException of every constraint alike
+    private static boolean violatesUniqueEmail(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return EMAIL_UNIQUE_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
     }
 
 }
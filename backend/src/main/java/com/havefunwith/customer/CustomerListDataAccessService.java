@@ -1,66 +1,201 @@
 package com.havefunwith.customer;
 
+import com.havefunwith.exception.DuplicatedResourceException;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/*
+    In-memory store. Rows are immutable and indexed by id (sorted, for keyset pages) and
+    by email, so reads are lock-free map lookups and always hand out fresh copies.
+    Writes to the same id are serialized by a lock stripe, and the email index claims an
+    email with putIfAbsent before a row may use it, which keeps emails unique without a
+    global lock. A TrigramIndex over names and emails serves searches.
+ */
 @Repository("list") // naming bean
 public class CustomerListDataAccessService implements CustomerDao {
 
-    private static List<Customer> customers;
+    private static final int LOCK_STRIPES = 64;
 
-    static {
-        customers = new ArrayList<>();
+    private final ConcurrentNavigableMap<Long, Row> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Long> byEmail = new ConcurrentHashMap<>();
+    private final TrigramIndex searchIndex = new TrigramIndex();
+    private final AtomicLong ids = new AtomicLong();
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
-        Customer john = new Customer((long) 1.0, "John", 24, "john@email.com");
-        Customer keyla = new Customer((long) 2.0, "Keyla", 28, "keila@email.com");
-
-        customers.add(john);
-        customers.add(keyla);
+    public CustomerListDataAccessService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        insertCustomer(new Customer("John", 24, "john@email.com"));
+        insertCustomer(new Customer("Keyla", 28, "keila@email.com"));
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return customers;
+        return byId.values().stream()
+                .map(Row::toCustomer)
+                .toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(Long afterId, int limit) {
+        return byId.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(Row::toCustomer)
+                .toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(CustomerFilter filter, Long afterId, int limit) {
+        return byId.tailMap(afterId, false).values().stream()
+                .filter(row -> filter.matches(row.name(), row.age(), row.email()))
+                .limit(limit)
+                .map(Row::toCustomer)
+                .toList();
+    }
+
+    @Override
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        byId.values().forEach(row -> consumer.accept(row.toCustomer()));
     }
 
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
-        return customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(byId.get(id)).map(Row::toCustomer);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int offset, int limit) {
+        return searchIndex.search(query, offset, limit,
+                id -> {
+                    Row row = byId.get(id);
+                    return row == null ? null : row.toCustomer();
+                });
+    }
+
+    @Override
+    public boolean insertCustomer(Customer customer) {
+        long id = ids.incrementAndGet();
+        if (byEmail.putIfAbsent(customer.getEmail(), id) != null) {
+            return false;
+        }
+        byId.put(id, new Row(id, customer.getName(), customer.getAge(), customer.getEmail(), 0L));
+        searchIndex.add(id, customer.getName(), customer.getEmail());
+        customer.setId(id);
+        customer.setVersion(0L);
+        return true;
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customers.add(customer);
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] result = new int[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            if (insertCustomer(customer)) {
+                result[i] = 1;
+            }
+        }
+        return result;
     }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getEmail().equals(email));
+        return byEmail.containsKey(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(byEmail::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public boolean existsPersonById(Long id) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getId().equals(id));
+        return byId.containsKey(id);
     }
 
     @Override
-    public void deleteCustomer(Long id) {
-        customers.stream()
-                .filter(customer -> !customer.getId().equals(id))
-                .findFirst()
-                .ifPresent(c -> customers.remove(c));
+    public boolean deleteCustomer(Long id) {
+        return delete(id, null);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public boolean deleteCustomer(Long id, long version) {
+        return delete(id, version);
+    }
+
+    // null deletes whatever the version
+    private boolean delete(Long id, Long version) {
+        synchronized (lockFor(id)) {
+            Row current = byId.get(id);
+            if (current == null || (version != null && !version.equals(current.version()))) {
+                return false;
+            }
+            byId.remove(id);
+            byEmail.remove(current.email(), id);
+            searchIndex.remove(id, current.name(), current.email());
+            return true;
+        }
+    }
+
+    @Override
+    public Optional<Customer> updateCustomer(Customer update) {
+        Long id = update.getId();
+        synchronized (lockFor(id)) {
+            Row current = byId.get(id);
+            if (current == null
+                    || (update.getVersion() != null && !update.getVersion().equals(current.version()))) {
+                return Optional.empty();
+            }
+            Row next = new Row(
+                    id,
+                    update.getName() != null ? update.getName() : current.name(),
+                    update.getAge() != null ? update.getAge() : current.age(),
+                    update.getEmail() != null ? update.getEmail() : current.email(),
+                    current.version() + 1
+            );
+            if (next.sameValuesAs(current)) {
+                return Optional.empty();
+            }
+            boolean emailChanged = !next.email().equals(current.email());
+            if (emailChanged && byEmail.putIfAbsent(next.email(), id) != null) {
+                throw new DuplicatedResourceException(
+                        "Customer with email [%s] already exist.".formatted(next.email()));
+            }
+            byId.put(id, next);
+            if (emailChanged) {
+                byEmail.remove(current.email(), id);
+            }
+            searchIndex.replace(id, current.name(), current.email(), next.name(), next.email());
+            return Optional.of(next.toCustomer());
+        }
+    }
+
+    private Object lockFor(Long id) {
+        return locks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
+    }
+
+    private record Row(Long id, String name, Integer age, String email, Long version) {
+
+        boolean sameValuesAs(Row other) {
+            return name.equals(other.name) && age.equals(other.age) && email.equals(other.email);
+        }
+
+        Customer toCustomer() {
+            return new Customer(id, name, age, email, version);
+        }
     }
 
 }
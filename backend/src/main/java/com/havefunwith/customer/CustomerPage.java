@@ -0,0 +1,12 @@
+package com.havefunwith.customer;
+
+import java.util.List;
+
+/*
+    A single page of customers. nextCursor is null when there are no more pages.
+ */
+public record CustomerPage(
+        List<Customer> customers,
+        String nextCursor
+) {
+}
@@ -0,0 +1,17 @@
+package com.havefunwith.customer;
+
+import java.util.List;
+
+/*
+    A CustomerPage as the API answers with it, see CustomerResponse.
+ */
+public record CustomerPageResponse(
+        List<CustomerResponse> customers,
+        String nextCursor
+) {
+
+    public static CustomerPageResponse from(CustomerPage page) {
+        return new CustomerPageResponse(CustomerResponse.from(page.customers()), page.nextCursor());
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.exception.DuplicatedResourceException;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    R2DBC implementation of the same statements CustomerJDBCDataAccessService runs.
+    Multi-row reads fetch fetchSize rows at a time and only as fast as the subscriber
+    requests them, so a slow client holds back the cursor instead of filling memory.
+ */
+@Profile("reactive")
+@Repository("r2dbc") // naming bean
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+
+    private static final String COLUMNS = "id, name, email, age, version";
+
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    public CustomerR2dbcDataAccessService(DatabaseClient databaseClient,
+                                          @Value("${customer.reactive.fetch-size:1000}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        var sql = """
+                SELECT %s
+                FROM customer
+                ORDER BY id
+                """.formatted(COLUMNS);
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersAfter(Long afterId, int limit) {
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE id > $1
+                ORDER BY id
+                LIMIT $2
+                """.formatted(COLUMNS);
+        return databaseClient.sql(sql)
+                .bind(0, afterId)
+                .bind(1, limit)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Long id) {
+        var sql = """
+                SELECT %s
+                FROM customer
+                WHERE id = $1
+                """.formatted(COLUMNS);
+        return databaseClient.sql(sql)
+                .bind(0, id)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> insertCustomer(Customer customer) {
+        var sql = """
+                INSERT INTO customer (name, email, age)
+                VALUES ($1, $2, $3)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind(0, customer.getName())
+                .bind(1, customer.getEmail())
+                .bind(2, customer.getAge())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .doOnNext(customer::setId)
+                .hasElement();
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomer(Long id) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = $1
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind(0, id)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .hasElement();
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomer(Long id, long version) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = $1 AND version = $2
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind(0, id)
+                .bind(1, version)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .hasElement();
+    }
+
+    @Override
+    public Mono<Customer> updateCustomer(Customer customer) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (customer.getName() != null) {
+            columns.add("name");
+            values.add(customer.getName());
+        }
+        if (customer.getEmail() != null) {
+            columns.add("email");
+            values.add(customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            columns.add("age");
+            values.add(customer.getAge());
+        }
+        if (columns.isEmpty()) {
+            return Mono.empty();
+        }
+
+        int changes = columns.size();
+        List<String> assignments = new ArrayList<>();
+        List<String> differences = new ArrayList<>();
+        for (int i = 0; i < changes; i++) {
+            assignments.add("%s = $%d".formatted(columns.get(i), i + 1));
+            differences.add("%s IS DISTINCT FROM $%d".formatted(columns.get(i), i + 1));
+        }
+        values.add(customer.getId());
+        String versionGuard = "";
+        if (customer.getVersion() != null) {
+            values.add(customer.getVersion());
+            versionGuard = "AND version = $%d".formatted(values.size());
+        }
+        var sql = """
+                UPDATE customer
+                SET %s, version = version + 1
+                WHERE id = $%d
+                %s
+                AND (%s)
+                RETURNING %s
+                """.formatted(
+                String.join(", ", assignments),
+                changes + 1,
+                versionGuard,
+                String.join(" OR ", differences),
+                COLUMNS);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (int i = 0; i < values.size(); i++) {
+            spec = spec.bind(i, values.get(i));
+        }
+        return spec.map(CustomerR2dbcDataAccessService::toCustomer)
+                .one()
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicatedResourceException(
+                        "Customer with email [%s] already exist.".formatted(customer.getEmail())));
+    }
+
+    @Override
+    public Mono<Boolean> existsPersonWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE email = $1) AS found
+                """;
+        return databaseClient.sql(sql)
+                .bind(0, email)
+                .map(row -> row.get("found", Boolean.class))
+                .one();
+    }
+
+    private static Customer toCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("age", Integer.class),
+                row.get("email", String.class),
+                row.get("version", Long.class)
+        );
+    }
+
+}
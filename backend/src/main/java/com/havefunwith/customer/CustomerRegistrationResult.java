@@ -0,0 +1,19 @@
+package com.havefunwith.customer;
+
+/*
+    Outcome of a single item of a bulk registration. index points back into the request array.
+ */
+public record CustomerRegistrationResult(
+        int index,
+        String email,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+
+}
@@ -1,6 +1,16 @@
 package com.havefunwith.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /*
     Data Access Layer or DAO (Data Access Object) Layer
@@ -9,4 +19,50 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     // *JPQL constructs customer queries.*
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Long id);
+    // Keyset pagination: the Pageable only carries the LIMIT, the offset always stays at 0.
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    Set<String> findEmailsIn(@Param("emails") Collection<String> emails);
+    // Native for the pg_trgm operators, which the GIN trigram indexes on name and email serve.
+    @Query(value = """
+            SELECT *
+            FROM customer
+            WHERE :query <% name OR :query <% email
+            ORDER BY GREATEST(word_similarity(:query, name), word_similarity(:query, email)) DESC, id
+            LIMIT :limit
+            OFFSET :offset
+            """, nativeQuery = true)
+    List<Customer> searchByNameOrEmail(@Param("query") String query,
+                                       @Param("offset") int offset,
+                                       @Param("limit") int limit);
+    // A bulk delete, unlike deleteById, does not load the entity first.
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id")
+    int deleteCustomerById(@Param("id") Long id);
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id AND c.version = :version")
+    int deleteCustomerByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+    // Native so the version check and RETURNING happen in one statement. Every parameter
+    // is cast because Postgres cannot infer the type of a null bind parameter.
+    @Transactional
+    @Query(value = """
+            UPDATE customer
+            SET name = COALESCE(CAST(:name AS TEXT), name),
+                email = COALESCE(CAST(:email AS TEXT), email),
+                age = COALESCE(CAST(:age AS INTEGER), age),
+                version = version + 1
+            WHERE id = :id
+            AND (CAST(:version AS BIGINT) IS NULL OR version = CAST(:version AS BIGINT))
+            AND (name IS DISTINCT FROM COALESCE(CAST(:name AS TEXT), name)
+                OR email IS DISTINCT FROM COALESCE(CAST(:email AS TEXT), email)
+                OR age IS DISTINCT FROM COALESCE(CAST(:age AS INTEGER), age))
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Customer> updateCustomer(@Param("id") Long id,
+                                      @Param("name") String name,
+                                      @Param("email") String email,
+                                      @Param("age") Integer age,
+                                      @Param("version") Long version);
 }
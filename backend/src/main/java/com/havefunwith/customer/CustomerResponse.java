@@ -0,0 +1,86 @@
+package com.havefunwith.customer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+    A customer as the API answers with it, copied out of the entity so the controllers
+    never hand a managed entity to Jackson. It is written by Serializer, a fixed sequence
+    of generator calls with the field names encoded once, instead of by a bean serializer
+    looking up and invoking the entity's getters. The JSON is the same as the entity's.
+ */
+@JsonSerialize(using = CustomerResponse.Serializer.class)
+public record CustomerResponse(
+        Long id,
+        String name,
+        Integer age,
+        String email,
+        Long version
+) {
+
+    public static CustomerResponse from(Customer customer) {
+        return new CustomerResponse(
+                customer.getId(),
+                customer.getName(),
+                customer.getAge(),
+                customer.getEmail(),
+                customer.getVersion());
+    }
+
+    public static List<CustomerResponse> from(List<Customer> customers) {
+        return customers.stream()
+                .map(CustomerResponse::from)
+                .toList();
+    }
+
+    public static final class Serializer extends StdSerializer<CustomerResponse> {
+
+        private static final SerializableString ID = new SerializedString("id");
+        private static final SerializableString NAME = new SerializedString("name");
+        private static final SerializableString AGE = new SerializedString("age");
+        private static final SerializableString EMAIL = new SerializedString("email");
+        private static final SerializableString VERSION = new SerializedString("version");
+
+        public Serializer() {
+            super(CustomerResponse.class);
+        }
+
+        @Override
+        public void serialize(CustomerResponse customer, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(customer);
+            generator.writeFieldName(ID);
+            writeNumber(generator, customer.id());
+            generator.writeFieldName(NAME);
+            generator.writeString(customer.name());
+            generator.writeFieldName(AGE);
+            if (customer.age() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(customer.age());
+            }
+            generator.writeFieldName(EMAIL);
+            generator.writeString(customer.email());
+            generator.writeFieldName(VERSION);
+            writeNumber(generator, customer.version());
+            generator.writeEndObject();
+        }
+
+        private static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+    }
+
+}
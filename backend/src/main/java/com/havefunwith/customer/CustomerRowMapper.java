@@ -15,7 +15,8 @@ public class CustomerRowMapper implements RowMapper<Customer> {
                 rs.getLong("id"),
                 rs.getString("name"),
                 rs.getInt("age"),
-                rs.getString("email")
+                rs.getString("email"),
+                rs.getLong("version")
         );
     }
 }
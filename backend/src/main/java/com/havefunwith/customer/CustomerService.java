@@ -1,12 +1,15 @@
 package com.havefunwith.customer;
 
 import com.havefunwith.exception.DuplicatedResourceException;
-import com.havefunwith.exception.ResourceNotChangedException;
+import com.havefunwith.exception.PreconditionFailedException;
+import com.havefunwith.exception.RequestValidationException;
 import com.havefunwith.exception.ResourceNotFoundException;
+import com.havefunwith.exception.ResourceVersionConflictException;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 /*
     Business Layer
@@ -14,74 +17,234 @@ import java.util.List;
 @Service
 public class CustomerService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    // ranking orders every match, deep pages would rank most of the table
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MIN_SEARCH_LENGTH = 3;
+    private static final int MAX_SEARCH_LENGTH = 100;
+
     private final CustomerDao customerDAO;
+    private final CustomerCache customerCache;
+    private final CustomerEmailFilter customerEmailFilter;
 
-    public CustomerService(@Qualifier("jpa") CustomerDao customerDAO) {
+    public CustomerService(@Qualifier("jpa") CustomerDao customerDAO,
+                           CustomerCache customerCache,
+                           CustomerEmailFilter customerEmailFilter) {
         this.customerDAO = customerDAO;
+        this.customerCache = customerCache;
+        this.customerEmailFilter = customerEmailFilter;
     }
 
     public List<Customer> getAllCustomers() {
         return customerDAO.selectAllCustomers();
     }
 
+    public CustomerPage getCustomers(String cursor, int limit) {
+        return getCustomers(cursor, limit, CustomerFilter.NONE);
+    }
+
+    public CustomerPage getCustomers(String cursor, int limit, CustomerFilter filter) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "Page size must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        validate(filter);
+        long afterId = cursor == null ? 0 : CustomerCursor.decode(cursor);
+        // fetch one extra row to find out whether another page exists
+        List<Customer> customers = filter.isEmpty()
+                ? customerDAO.selectCustomersAfter(afterId, limit + 1)
+                : customerDAO.selectCustomersAfter(filter, afterId, limit + 1);
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, limit);
+        return new CustomerPage(page, CustomerCursor.encode(page.get(limit - 1).getId()));
+    }
+
+    private static void validate(CustomerFilter filter) {
+        if ((filter.minAge() != null && filter.minAge() < 0)
+                || (filter.maxAge() != null && filter.maxAge() < 0)
+                || (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge())) {
+            throw new RequestValidationException(
+                    "Age range [%s, %s] is not valid".formatted(filter.minAge(), filter.maxAge()));
+        }
+        if (filter.emailDomain() != null
+                && (filter.emailDomain().isBlank() || filter.emailDomain().contains("@"))) {
+            throw new RequestValidationException(
+                    "Email domain [%s] is not valid".formatted(filter.emailDomain()));
+        }
+        if (filter.namePrefix() != null
+                && (filter.namePrefix().isBlank() || filter.namePrefix().length() > MAX_SEARCH_LENGTH)) {
+            throw new RequestValidationException(
+                    "Name prefix must be between 1 and %s characters long".formatted(MAX_SEARCH_LENGTH));
+        }
+    }
+
+    /*
+        The cursor of a search page encodes the offset of the next one. Queries shorter
+        than a trigram would match most of the table.
+     */
+    public CustomerPage searchCustomers(String query, String cursor, int limit) {
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() < MIN_SEARCH_LENGTH || trimmed.length() > MAX_SEARCH_LENGTH) {
+            throw new RequestValidationException(
+                    "Search query must be between %s and %s characters long"
+                            .formatted(MIN_SEARCH_LENGTH, MAX_SEARCH_LENGTH));
+        }
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "Page size must be between 1 and %s".formatted(MAX_SEARCH_PAGE_SIZE));
+        }
+        long offset = cursor == null ? 0 : CustomerCursor.decode(cursor);
+        if (offset < 0 || offset >= MAX_SEARCH_RESULTS) {
+            throw new RequestValidationException("Cursor [%s] is not valid".formatted(cursor));
+        }
+        int pageSize = (int) Math.min(limit, MAX_SEARCH_RESULTS - offset);
+        // fetch one extra row to find out whether another page exists
+        List<Customer> customers = customerDAO.searchCustomers(trimmed, (int) offset, pageSize + 1);
+        if (customers.size() <= pageSize) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, pageSize);
+        long nextOffset = offset + pageSize;
+        return new CustomerPage(page, nextOffset < MAX_SEARCH_RESULTS ? CustomerCursor.encode(nextOffset) : null);
+    }
+
     public Customer getCustomer(Long id) {
-        return customerDAO.selectCustomerById(id)
+        // a replica's row could be behind a write and would be cached for every client
+        return customerCache.get(id, customerDAO::selectCustomerByIdFromPrimary)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Customer with id [%s] does not exist".formatted(id)
                 ));
     }
 
+    /*
+        The database constraints answer whether the email is taken or the customer
+        exists, so each write is a single statement and cannot race a concurrent one.
+     */
     public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
         String email = customerRegistrationRequest.email();
-        if (customerDAO.existsPersonWithEmail(email)) {
-            throw new DuplicatedResourceException("Customer with email [%s] already exist.".formatted(email));
-        }
         Customer customer = new Customer(
                 customerRegistrationRequest.name(),
                 customerRegistrationRequest.age(),
-                customerRegistrationRequest.email()
+                email
         );
-        customerDAO.insertCustomer(customer);
+        if (!customerDAO.insertCustomer(customer)) {
+            throw new DuplicatedResourceException("Customer with email [%s] already exist.".formatted(email));
+        }
+        customerEmailFilter.put(email);
     }
 
     public void deleteCustomer(Long customerId) {
-        if (!customerDAO.existsPersonById(customerId)) {
+        deleteCustomer(customerId, null);
+    }
+
+    /*
+        ifMatch is what the request's If-Match accepts, null without one, see
+        CustomerETag.ifMatch. With versions the DELETE is conditional on the version. With
+        any If-Match a missing customer fails the precondition rather than not being found.
+     */
+    public void deleteCustomer(Long customerId, CustomerIfMatch ifMatch) {
+        boolean deleted = ifMatch == null || ifMatch.any()
+                ? customerDAO.deleteCustomer(customerId)
+                : customerDAO.deleteCustomer(customerId, expectedVersion(customerId, null, ifMatch));
+        customerCache.invalidate(customerId);
+        if (!deleted) {
+            if (ifMatch != null) {
+                throw precondition(currentCustomer(customerId, ifMatch));
+            }
             throw new ResourceNotFoundException(
                     "Customer with id [%s] was not found.".formatted(customerId)
             );
         }
-        customerDAO.deleteCustomer(customerId);
+        customerEmailFilter.markStale();
     }
 
-    public void updateCustomer(Long customerId, CustomerUpdateRequest updateRequest) {
-        Customer customer = getCustomer(customerId);
-        boolean changes = false;
-
-        if (updateRequest.name() != null && !customer.getName().equals(updateRequest.name())) {
-            customer.setName(updateRequest.name());
-            changes = true;
-        }
+    public Customer updateCustomer(Long customerId, CustomerUpdateRequest updateRequest) {
+        return updateCustomer(customerId, updateRequest, null);
+    }
 
-        if (updateRequest.age() != null && !customer.getAge().equals(updateRequest.age())) {
-            customer.setAge(updateRequest.age());
-            changes = true;
+    /*
+        A single conditional UPDATE does the work. Only when it changes nothing do we read
+        the row, to tell a missing customer, a stale version and a no-op update apart. A
+        no-op update returns the customer as it is.
+
+        ifMatch is as for deleteCustomer. A version it does not accept fails the
+        precondition, where a stale version in the request body is a conflict.
+     */
+    public Customer updateCustomer(Long customerId, CustomerUpdateRequest updateRequest, CustomerIfMatch ifMatch) {
+        Long expectedVersion = expectedVersion(customerId, updateRequest.version(), ifMatch);
+        Customer changes = new Customer(
+                customerId,
+                updateRequest.name(),
+                updateRequest.age(),
+                updateRequest.email(),
+                expectedVersion
+        );
+        Optional<Customer> updated = customerDAO.updateCustomer(changes);
+        // Invalidate after the write: it also drops an in-flight load of the old row, so
+        // nothing stale can be cached behind the invalidation.
+        customerCache.invalidate(customerId);
+        if (updated.isPresent() && updateRequest.email() != null) {
+            customerEmailFilter.put(updateRequest.email());
+            customerEmailFilter.markStale();
         }
+        return updated.orElseGet(() -> explainMissedUpdate(customerId, expectedVersion, ifMatch));
+    }
 
-        if (updateRequest.email() != null && !customer.getEmail().equals(updateRequest.email())) {
-            if (customerDAO.existsPersonWithEmail(updateRequest.email())) {
-                throw new DuplicatedResourceException(
-                        "Customer with email [%s] already exist."
-                                .formatted(updateRequest.email()));
+    // Reads the row from the database, a cached copy could report an outdated version.
+    private Customer explainMissedUpdate(Long customerId, Long expectedVersion, CustomerIfMatch ifMatch) {
+        Customer current = currentCustomer(customerId, ifMatch);
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            // with "*" the version came from the request body
+            if (ifMatch != null && !ifMatch.any()) {
+                throw precondition(current);
             }
-            customer.setEmail(updateRequest.email());
-            changes = true;
+            throw new ResourceVersionConflictException(
+                    "Customer with id [%s] has version [%s], not [%s]."
+                            .formatted(customerId, current.getVersion(), expectedVersion));
         }
+        return current;
+    }
 
-        if (!changes) {
-            throw new ResourceNotChangedException("No data changes found");
+    /*
+        The version a write is conditional on. With a single If-Match version that is the
+        one, with several the current version must be among them.
+     */
+    private Long expectedVersion(Long customerId, Long requestVersion, CustomerIfMatch ifMatch) {
+        if (ifMatch == null || ifMatch.any()) {
+            return requestVersion;
+        }
+        if (requestVersion != null && !ifMatch.accepts(requestVersion)) {
+            throw new RequestValidationException(
+                    "Version [%s] is not one the If-Match header accepts".formatted(requestVersion));
+        }
+        if (ifMatch.versions().size() == 1) {
+            return ifMatch.versions().iterator().next();
         }
+        Customer current = currentCustomer(customerId, ifMatch);
+        if (!ifMatch.accepts(current.getVersion())) {
+            throw precondition(current);
+        }
+        return current.getVersion();
+    }
+
+    // a customer that does not exist fails any If-Match, RFC 9110 13.1.1
+    private Customer currentCustomer(Long customerId, CustomerIfMatch ifMatch) {
+        return customerDAO.selectCustomerById(customerId)
+                .orElseThrow(() -> ifMatch == null
+                        ? new ResourceNotFoundException(
+                                "Customer with id [%s] does not exist".formatted(customerId))
+                        : new PreconditionFailedException(
+                                "Customer with id [%s] does not exist, which the If-Match header does not accept."
+                                        .formatted(customerId)));
+    }
 
-        customerDAO.updateCustomer(customer);
+    private static PreconditionFailedException precondition(Customer current) {
+        return new PreconditionFailedException(
+                "Customer with id [%s] has version [%s], which the If-Match header does not accept."
+                        .formatted(current.getId(), current.getVersion()));
     }
 
 }
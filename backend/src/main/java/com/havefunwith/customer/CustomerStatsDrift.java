@@ -0,0 +1,18 @@
+package com.havefunwith.customer;
+
+/*
+    What a reconciliation corrected: how many age and email domain buckets were off and,
+    summed over them, by how many customers.
+ */
+public record CustomerStatsDrift(
+        long ageBuckets,
+        long ageCustomers,
+        long emailDomainBuckets,
+        long emailDomainCustomers
+) {
+
+    public boolean isEmpty() {
+        return ageBuckets == 0 && emailDomainBuckets == 0;
+    }
+
+}
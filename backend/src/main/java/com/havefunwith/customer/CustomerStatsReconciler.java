@@ -0,0 +1,73 @@
+package com.havefunwith.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+    The triggers keep the analytics counts exact for every write through SQL, but not for
+    the ones that bypass them, like a session with session_replication_role = replica or
+    a restore of one table without the other. Every interval the counts are recounted from
+    the customer table and corrected, customer.stats.drift counts the customers they were
+    off by. The first run waits an interval, it scans the whole table.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "customer.analytics.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerStatsReconciler implements SchedulingConfigurer {
+
+    private final CustomerAnalyticsDao customerAnalyticsDao;
+    private final Duration interval;
+    private final Counter ageDrift;
+    private final Counter emailDomainDrift;
+
+    public CustomerStatsReconciler(@Qualifier("analyticsJdbc") CustomerAnalyticsDao customerAnalyticsDao,
+                                   @Value("${customer.analytics.reconcile.interval:1h}") Duration interval,
+                                   MeterRegistry meterRegistry) {
+        this.customerAnalyticsDao = customerAnalyticsDao;
+        this.interval = interval;
+        this.ageDrift = driftCounter(meterRegistry, "age");
+        this.emailDomainDrift = driftCounter(meterRegistry, "email_domain");
+    }
+
+    private static Counter driftCounter(MeterRegistry meterRegistry, String dimension) {
+        return Counter.builder("customer.stats.drift")
+                .description("Customers the analytics counts were off by, corrected by reconciliation")
+                .tag("dimension", dimension)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::reconcile, interval, interval));
+    }
+
+    void reconcile() {
+        CustomerStatsDrift drift;
+        try {
+            drift = customerAnalyticsDao.reconcile();
+        } catch (RuntimeException e) {
+            // retried next interval
+            log.warn("Reconciling customer stats failed", e);
+            return;
+        }
+        ageDrift.increment(drift.ageCustomers());
+        emailDomainDrift.increment(drift.emailDomainCustomers());
+        if (!drift.isEmpty()) {
+            log.warn("Corrected customer stats: {} age buckets off by {} customers, {} email domains off by {}",
+                    Unbox.box(drift.ageBuckets()), Unbox.box(drift.ageCustomers()),
+                    Unbox.box(drift.emailDomainBuckets()), Unbox.box(drift.emailDomainCustomers()));
+        }
+    }
+
+}
@@ -1,8 +1,18 @@
 package com.havefunwith.customer;
 
+/*
+    version is optional. When present the update only applies if the stored
+    customer still has that version, otherwise the last write wins.
+ */
 public record CustomerUpdateRequest(
         String name,
         String email,
-        Integer age
+        Integer age,
+        Long version
 ) {
+
+    public CustomerUpdateRequest(String name, String email, Integer age) {
+        this(name, email, age, null);
+    }
+
 }
@@ -0,0 +1,88 @@
+package com.havefunwith.customer;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+    CustomerController for the reactive profile. Lists are written as the rows arrive,
+    as a JSON array or as newline-delimited JSON, and demand from the client flows back
+    to the database cursor.
+
+    Bulk registration and CSV import are batch JDBC paths and stay on the servlet API.
+ */
+@Profile("reactive")
+@RestController
+@RequestMapping("api/v1/customers")
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerService customerService;
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<CustomerResponse> getCustomers() {
+        return customerService.getAllCustomers().map(CustomerResponse::from);
+    }
+
+    // ETags and If-None-Match as in CustomerController, the streamed lists have none
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<CustomerPageResponse>> getCustomerPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return customerService.getCustomers(cursor, limit)
+                .map(page -> withETag(CustomerPageResponse.from(page),
+                        CustomerETag.of(page.customers(), page.nextCursor())));
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerResponse> exportCustomers() {
+        return customerService.getAllCustomers().map(CustomerResponse::from);
+    }
+
+    @GetMapping("{customerId}")
+    public Mono<ResponseEntity<CustomerResponse>> getCustomer(@PathVariable("customerId") Long customerId) {
+        return customerService.getCustomer(customerId)
+                .map(customer -> withETag(CustomerResponse.from(customer), CustomerETag.of(customer)));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<String>> registerCustomer(@RequestBody CustomerRegistrationRequest request) {
+        return customerService.addCustomer(request)
+                .thenReturn(ResponseEntity.ok("Customer successfully added"));
+    }
+
+    @DeleteMapping("{customerId}")
+    public Mono<ResponseEntity<String>> deleteCustomer(
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return customerService.deleteCustomer(customerId, CustomerETag.ifMatch(ifMatch))
+                .thenReturn(ResponseEntity.ok("Customer deleted successfully"));
+    }
+
+    @PutMapping("{customerId}")
+    public Mono<ResponseEntity<String>> updateCustomer(
+            @PathVariable Long customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody CustomerUpdateRequest request) {
+        return customerService.updateCustomer(customerId, request, CustomerETag.ifMatch(ifMatch))
+                .map(customer -> ResponseEntity.ok()
+                        .eTag(CustomerETag.of(customer))
+                        .body("Customer updated successfully."));
+    }
+
+    private static <T> ResponseEntity<T> withETag(T body, String eTag) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+}
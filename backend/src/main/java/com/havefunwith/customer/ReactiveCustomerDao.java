@@ -0,0 +1,34 @@
+package com.havefunwith.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+    Non-blocking counterpart of CustomerDao, with the same semantics.
+ */
+public interface ReactiveCustomerDao {
+
+     Flux<Customer> selectAllCustomers();
+
+     Flux<Customer> selectCustomersAfter(Long afterId, int limit);
+
+     Mono<Customer> selectCustomerById(Long id);
+
+     /*
+        Emits true and sets the generated id on customer, or false when the email is
+        already taken.
+      */
+     Mono<Boolean> insertCustomer(Customer customer);
+
+     Mono<Boolean> deleteCustomer(Long id);
+
+     Mono<Boolean> deleteCustomer(Long id, long version);
+
+     /*
+        Same contract as CustomerDao.updateCustomer: completes empty when no row changed.
+      */
+     Mono<Customer> updateCustomer(Customer customer);
+
+     Mono<Boolean> existsPersonWithEmail(String email);
+
+}
@@ -0,0 +1,164 @@
+package com.havefunwith.customer;
+
+import com.havefunwith.exception.DuplicatedResourceException;
+import com.havefunwith.exception.PreconditionFailedException;
+import com.havefunwith.exception.RequestValidationException;
+import com.havefunwith.exception.ResourceNotFoundException;
+import com.havefunwith.exception.ResourceVersionConflictException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/*
+    Business Layer of the reactive profile, the same rules as CustomerService.
+ */
+@Profile("reactive")
+@Service
+public class ReactiveCustomerService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveCustomerDao customerDAO;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDAO) {
+        this.customerDAO = customerDAO;
+    }
+
+    public Flux<Customer> getAllCustomers() {
+        return customerDAO.selectAllCustomers();
+    }
+
+    public Mono<CustomerPage> getCustomers(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new RequestValidationException(
+                    "Page size must be between 1 and %s".formatted(MAX_PAGE_SIZE)));
+        }
+        return Mono.fromCallable(() -> cursor == null ? 0 : CustomerCursor.decode(cursor))
+                // fetch one extra row to find out whether another page exists
+                .flatMap(afterId -> customerDAO.selectCustomersAfter(afterId, limit + 1).collectList())
+                .map(customers -> {
+                    if (customers.size() <= limit) {
+                        return new CustomerPage(customers, null);
+                    }
+                    List<Customer> page = customers.subList(0, limit);
+                    return new CustomerPage(page, CustomerCursor.encode(page.get(limit - 1).getId()));
+                });
+    }
+
+    public Mono<Customer> getCustomer(Long id) {
+        return customerDAO.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(
+                        "Customer with id [%s] does not exist".formatted(id)
+                )));
+    }
+
+    public Mono<Void> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        String email = customerRegistrationRequest.email();
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.age(),
+                email
+        );
+        return customerDAO.insertCustomer(customer)
+                .flatMap(inserted -> inserted
+                        ? Mono.<Void>empty()
+                        : Mono.error(new DuplicatedResourceException(
+                                "Customer with email [%s] already exist.".formatted(email))));
+    }
+
+    /*
+        Same semantics as CustomerService.deleteCustomer.
+     */
+    public Mono<Void> deleteCustomer(Long customerId, CustomerIfMatch ifMatch) {
+        if (ifMatch == null) {
+            return customerDAO.deleteCustomer(customerId)
+                    .flatMap(deleted -> deleted
+                            ? Mono.<Void>empty()
+                            : Mono.error(new ResourceNotFoundException(
+                                    "Customer with id [%s] was not found.".formatted(customerId))));
+        }
+        Mono<Boolean> delete = ifMatch.any()
+                ? customerDAO.deleteCustomer(customerId)
+                : expectedVersion(customerId, null, ifMatch)
+                        .flatMap(version -> customerDAO.deleteCustomer(customerId, version));
+        return delete.flatMap(deleted -> deleted
+                ? Mono.<Void>empty()
+                : currentCustomer(customerId, ifMatch).flatMap(current -> Mono.error(precondition(current))));
+    }
+
+    /*
+        Same semantics as CustomerService.updateCustomer.
+     */
+    public Mono<Customer> updateCustomer(Long customerId, CustomerUpdateRequest updateRequest, CustomerIfMatch ifMatch) {
+        if (ifMatch == null || ifMatch.any()) {
+            return updateCustomer(customerId, updateRequest, updateRequest.version(), ifMatch);
+        }
+        return expectedVersion(customerId, updateRequest.version(), ifMatch)
+                .flatMap(version -> updateCustomer(customerId, updateRequest, version, ifMatch));
+    }
+
+    private Mono<Customer> updateCustomer(Long customerId,
+                                          CustomerUpdateRequest updateRequest,
+                                          Long expectedVersion,
+                                          CustomerIfMatch ifMatch) {
+        Customer changes = new Customer(
+                customerId,
+                updateRequest.name(),
+                updateRequest.age(),
+                updateRequest.email(),
+                expectedVersion
+        );
+        return customerDAO.updateCustomer(changes)
+                .switchIfEmpty(Mono.defer(() -> explainMissedUpdate(customerId, expectedVersion, ifMatch)));
+    }
+
+    private Mono<Customer> explainMissedUpdate(Long customerId, Long expectedVersion, CustomerIfMatch ifMatch) {
+        return currentCustomer(customerId, ifMatch)
+                .flatMap(current -> {
+                    if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                        // with "*" the version came from the request body
+                        return Mono.error(ifMatch != null && !ifMatch.any()
+                                ? precondition(current)
+                                : new ResourceVersionConflictException(
+                                        "Customer with id [%s] has version [%s], not [%s]."
+                                                .formatted(customerId, current.getVersion(), expectedVersion)));
+                    }
+                    return Mono.just(current);
+                });
+    }
+
+    private Mono<Long> expectedVersion(Long customerId, Long requestVersion, CustomerIfMatch ifMatch) {
+        if (requestVersion != null && !ifMatch.accepts(requestVersion)) {
+            return Mono.error(new RequestValidationException(
+                    "Version [%s] is not one the If-Match header accepts".formatted(requestVersion)));
+        }
+        if (ifMatch.versions().size() == 1) {
+            return Mono.just(ifMatch.versions().iterator().next());
+        }
+        return currentCustomer(customerId, ifMatch)
+                .flatMap(current -> ifMatch.accepts(current.getVersion())
+                        ? Mono.just(current.getVersion())
+                        : Mono.error(precondition(current)));
+    }
+
+    // a customer that does not exist fails any If-Match, RFC 9110 13.1.1
+    private Mono<Customer> currentCustomer(Long customerId, CustomerIfMatch ifMatch) {
+        if (ifMatch == null) {
+            return getCustomer(customerId);
+        }
+        return customerDAO.selectCustomerById(customerId)
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(
+                        "Customer with id [%s] does not exist, which the If-Match header does not accept."
+                                .formatted(customerId))));
+    }
+
+    private static PreconditionFailedException precondition(Customer current) {
+        return new PreconditionFailedException(
+                "Customer with id [%s] has version [%s], which the If-Match header does not accept."
+                        .formatted(current.getId(), current.getVersion()));
+    }
+
+}
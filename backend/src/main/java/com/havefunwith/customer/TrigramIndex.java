@@ -0,0 +1,354 @@
+package com.havefunwith.customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/*
+    In-memory counterpart of the pg_trgm GIN indexes on name and email: maps every
+    trigram to the sorted ids of the customers whose name or email contains it.
+
+    Trigrams are taken the way pg_trgm takes them: per word of letters and digits,
+    lowercased and padded with two spaces in front and one behind. A customer's similarity
+    to a query is the share of the query's trigrams found in its name or in its email,
+    whichever is higher, close to pg_trgm's word_similarity, and it matches from the same
+    default threshold of 0.6.
+
+    A match shares at least needed(n) of the query's n trigrams, so it is in at least one
+    of the n - needed(n) + 1 smallest posting lists. A search only reads those, the lists
+    of trigrams most customers share, like the "com" of every email, are never scanned,
+    just binary searched for the candidates. Those in needed(n) lists are scored on their
+    current values, looked up by id.
+ */
+final class TrigramIndex {
+
+    // pg_trgm.word_similarity_threshold defaults to 0.6
+    static final double THRESHOLD = 0.6;
+
+    static final Comparator<Match> BY_SIMILARITY = Comparator
+            .comparingDouble(Match::similarity).reversed()
+            .thenComparing(match -> match.customer().getId());
+
+    private final ConcurrentMap<Long, Postings> postings = new ConcurrentHashMap<>();
+
+    void add(long id, String name, String email) {
+        for (long trigram : trigrams(name, email)) {
+            postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+        }
+    }
+
+    void remove(long id, String name, String email) {
+        for (long trigram : trigrams(name, email)) {
+            Postings ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    // Adds the new trigrams before removing the old ones, so a search never misses the
+    // trigrams both values share.
+    void replace(long id, String oldName, String oldEmail, String name, String email) {
+        long[] before = trigrams(oldName, oldEmail);
+        long[] after = trigrams(name, email);
+        for (long trigram : after) {
+            if (Arrays.binarySearch(before, trigram) < 0) {
+                postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+            }
+        }
+        for (long trigram : before) {
+            Postings ids = postings.get(trigram);
+            if (ids != null && Arrays.binarySearch(after, trigram) < 0) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    /*
+        lookup returns the current customer with an id, or null once it is gone.
+     */
+    List<Customer> search(String query, int offset, int limit, LongFunction<Customer> lookup) {
+        long[] queryTrigrams = trigrams(query);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+        int needed = needed(queryTrigrams.length);
+        int lists = queryTrigrams.length - needed + 1;
+        List<Postings> candidateLists = new ArrayList<>(queryTrigrams.length);
+        for (long trigram : queryTrigrams) {
+            Postings ids = postings.get(trigram);
+            if (ids == null) {
+                // an empty list is one of the smallest
+                lists--;
+            } else {
+                candidateLists.add(ids);
+            }
+        }
+        candidateLists.sort(Comparator.comparingInt(Postings::size));
+
+        long[] candidates = new long[0];
+        for (int i = 0; i < Math.min(lists, candidateLists.size()); i++) {
+            candidates = union(candidates, candidateLists.get(i).toArray());
+        }
+        List<Match> matches = new ArrayList<>();
+        for (long id : candidates) {
+            if (!hasTrigrams(candidateLists, id, needed)) {
+                continue;
+            }
+            Customer customer = lookup.apply(id);
+            if (customer == null) {
+                continue;
+            }
+            double similarity = similarity(queryTrigrams, customer.getName(), customer.getEmail());
+            if (similarity >= THRESHOLD) {
+                matches.add(new Match(customer, similarity));
+            }
+        }
+        return page(matches, offset, limit);
+    }
+
+    // whether id is in needed of lists, giving up once the rest cannot make up for it
+    private static boolean hasTrigrams(List<Postings> lists, long id, int needed) {
+        int found = 0;
+        for (int i = 0; i < lists.size() && found + lists.size() - i >= needed; i++) {
+            if (lists.get(i).contains(id) && ++found == needed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // merges two sorted arrays of distinct ids
+    private static long[] union(long[] left, long[] right) {
+        long[] union = new long[left.length + right.length];
+        int l = 0;
+        int r = 0;
+        int size = 0;
+        while (l < left.length && r < right.length) {
+            if (left[l] < right[r]) {
+                union[size++] = left[l++];
+            } else if (left[l] > right[r]) {
+                union[size++] = right[r++];
+            } else {
+                union[size++] = left[l++];
+                r++;
+            }
+        }
+        while (l < left.length) {
+            union[size++] = left[l++];
+        }
+        while (r < right.length) {
+            union[size++] = right[r++];
+        }
+        return size == union.length ? union : Arrays.copyOf(union, size);
+    }
+
+    // keeps only the best offset + limit matches on a heap instead of sorting them all
+    static List<Customer> page(List<Match> matches, int offset, int limit) {
+        int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        PriorityQueue<Match> best = new PriorityQueue<>(BY_SIMILARITY.reversed());
+        for (Match match : matches) {
+            best.offer(match);
+            if (best.size() > keep) {
+                best.poll();
+            }
+        }
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(BY_SIMILARITY);
+        return ranked.stream()
+                .skip(offset)
+                .map(Match::customer)
+                .toList();
+    }
+
+    static double similarity(long[] queryTrigrams, String name, String email) {
+        return Math.max(similarity(queryTrigrams, name), similarity(queryTrigrams, email));
+    }
+
+    /*
+        Runs for every candidate, so it walks the trigrams of value without collecting
+        them, and a bit per query trigram in a 64 bit mask rules most of them out before
+        the binary search.
+     */
+    static double similarity(long[] queryTrigrams, String value) {
+        long mask = 0;
+        for (long trigram : queryTrigrams) {
+            mask |= 1L << bit(trigram);
+        }
+        long queryMask = mask;
+        boolean[] found = new boolean[queryTrigrams.length];
+        int[] shared = new int[1];
+        forEachTrigram(value, trigram -> {
+            if ((queryMask & (1L << bit(trigram))) == 0) {
+                return;
+            }
+            int index = Arrays.binarySearch(queryTrigrams, trigram);
+            if (index >= 0 && !found[index]) {
+                found[index] = true;
+                shared[0]++;
+            }
+        });
+        return (double) shared[0] / queryTrigrams.length;
+    }
+
+    // Fibonacci hashing, the top 6 bits of the product
+    private static int bit(long trigram) {
+        return (int) ((trigram * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+
+    // the fewest shared trigrams that reach THRESHOLD, counted like similarity does
+    static int needed(int queryTrigrams) {
+        int shared = 0;
+        while ((double) shared / queryTrigrams < THRESHOLD) {
+            shared++;
+        }
+        return shared;
+    }
+
+    /*
+        The distinct trigrams of values, sorted. Each is three chars packed into a long.
+     */
+    static long[] trigrams(String... values) {
+        LongStream.Builder trigrams = LongStream.builder();
+        for (String value : values) {
+            forEachTrigram(value, trigrams);
+        }
+        return trigrams.build().sorted().distinct().toArray();
+    }
+
+    private static void forEachTrigram(String value, LongConsumer consumer) {
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            if (!Character.isLetterOrDigit(value.charAt(start))) {
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < length && Character.isLetterOrDigit(value.charAt(end))) {
+                end++;
+            }
+            // "  word ": one trigram per char of the word, plus one for the padding behind
+            char first = ' ';
+            char second = ' ';
+            for (int i = start; i <= end; i++) {
+                char third = i < end ? Character.toLowerCase(value.charAt(i)) : ' ';
+                consumer.accept(((long) first << 32) | ((long) second << 16) | third);
+                first = second;
+                second = third;
+            }
+            start = end;
+        }
+    }
+
+    record Match(Customer customer, double similarity) {
+    }
+
+    /*
+        Ids in ascending order. Removing an id negates it in place instead of shifting the
+        rest of a list that may hold most customers, and the list is compacted once half
+        of it is removed.
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+        private int removed;
+
+        synchronized void add(long id) {
+            if (size == 0 || Math.abs(ids[size - 1]) < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int index = indexOf(id);
+            if (index >= 0) {
+                if (ids[index] < 0) {
+                    ids[index] = id;
+                    removed--;
+                }
+                return;
+            }
+            int insertion = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            ids[insertion] = id;
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            int index = indexOf(id);
+            if (index < 0 || ids[index] < 0) {
+                return;
+            }
+            ids[index] = -id;
+            if (++removed > size / 2) {
+                compact();
+            }
+        }
+
+        synchronized boolean contains(long id) {
+            int index = indexOf(id);
+            return index >= 0 && ids[index] > 0;
+        }
+
+        synchronized int size() {
+            return size - removed;
+        }
+
+        synchronized long[] toArray() {
+            long[] live = new long[size - removed];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] > 0) {
+                    live[count++] = ids[i];
+                }
+            }
+            return live;
+        }
+
+        // binary search on the absolute ids, like Arrays.binarySearch
+        private int indexOf(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = Math.abs(ids[middle]);
+                if (value < id) {
+                    low = middle + 1;
+                } else if (value > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+
+        private void compact() {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] > 0) {
+                    ids[live++] = ids[i];
+                }
+            }
+            size = live;
+            removed = 0;
+        }
+
+    }
+
+}
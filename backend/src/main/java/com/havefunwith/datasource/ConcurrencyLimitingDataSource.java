@@ -0,0 +1,155 @@
+package com.havefunwith.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Hands out at most maxConcurrency connections at a time. A caller waits for a permit
+    in a fair queue before it reaches the pool, and the permit is returned when the
+    connection is closed.
+
+    With a virtual thread per request there can be thousands of callers. Without the
+    semaphore they would all pile into the pool's own wait logic at once.
+
+    The wait for a permit is timed as datasource.permits.wait, next to the pool's own
+    hikaricp.connections.acquire.
+
+    The limit follows the pool when PoolSizeController resizes it. Lowering it takes the
+    permits away as they are returned, connections already handed out are not revoked.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private final ResizableSemaphore permits;
+    private final Duration timeout;
+    private final Timer permitWait;
+    private volatile int maxConcurrency;
+
+    public ConcurrencyLimitingDataSource(DataSource targetDataSource,
+                                         int maxConcurrency,
+                                         Duration timeout,
+                                         MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.permits = new ResizableSemaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = timeout;
+        this.permitWait = Timer.builder("datasource.permits.wait")
+                .description("Time spent waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("datasource.permits.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("datasource.permits.queued", permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+        Gauge.builder("datasource.permits.limit", this, ConcurrencyLimitingDataSource::getMaxConcurrency)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        int delta = maxConcurrency - this.maxConcurrency;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            permitWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                throw new SQLTransientConnectionException(
+                        "No database permit available after %s ms".formatted(timeout.toMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    // a fair semaphore that exposes reducePermits, which Semaphore keeps protected
+    private static final class ResizableSemaphore extends Semaphore {
+
+        private ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.havefunwith.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/*
+    In virtual thread mode the number of concurrent requests is no longer bounded by
+    Tomcat's pool, so database access is capped at the Hikari pool size instead.
+
+    The mode needs VirtualThreadConfig, which only a virtual-threads build has. Without
+    it the flag would cap the pool while requests still ran on Tomcat's workers, so
+    startup fails instead.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.virtual-threads.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+    static final String VIRTUAL_THREAD_CONFIG = "com.havefunwith.config.VirtualThreadConfig";
+
+    public DatabaseConcurrencyConfig() {
+        // also false on a runtime older than Java 21, which cannot load the class
+        if (!ClassUtils.isPresent(VIRTUAL_THREAD_CONFIG, DatabaseConcurrencyConfig.class.getClassLoader())) {
+            throw new IllegalStateException("customer.virtual-threads.enabled needs a build with the "
+                    + "virtual-threads Maven profile, running on Java 21 or later");
+        }
+    }
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the pool may already be wrapped, e.g. by StatementStatisticsDataSource
+                if (bean instanceof DataSource dataSource && isHikari(dataSource)) {
+                    HikariDataSource hikariDataSource = unwrapHikari(dataSource);
+                    // an unset pool size is only defaulted when the pool starts, apply it now
+                    hikariDataSource.validate();
+                    return new ConcurrencyLimitingDataSource(
+                            dataSource,
+                            hikariDataSource.getMaximumPoolSize(),
+                            Duration.ofMillis(hikariDataSource.getConnectionTimeout()),
+                            meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static boolean isHikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("DataSource does not wrap a HikariDataSource", e);
+        }
+    }
+
+}
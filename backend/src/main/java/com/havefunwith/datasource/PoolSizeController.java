@@ -0,0 +1,212 @@
+package com.havefunwith.datasource;
+
+import com.havefunwith.datasource.PoolSizingPolicy.Decision;
+import com.havefunwith.datasource.PoolSizingPolicy.Sample;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Resizes the Hikari pool every interval as PoolSizingPolicy decides, from the pool's own
+    meters: hikaricp.connections.usage gives throughput and how long connections are held,
+    hikaricp.connections.acquire and datasource.permits.wait how long callers wait for one.
+
+    The pool is kept at a fixed size, minimum idle equals maximum. Growing only raises both,
+    Hikari opens connections as callers ask for them. Shrinking evicts the surplus right
+    away, it happens when most connections are idle, so borrowing them is immediate. In
+    virtual thread mode the ConcurrencyLimitingDataSource permits follow the pool size.
+ */
+@Log4j2
+public class PoolSizeController implements SchedulingConfigurer {
+
+    private final HikariDataSource hikariDataSource;
+    // null unless virtual threads are enabled
+    private final ConcurrencyLimitingDataSource concurrencyLimitingDataSource;
+    private final PoolSizingPolicy policy;
+    private final Duration interval;
+
+    private final TimerInterval usage;
+    private final TimerInterval acquire;
+    private final TimerInterval permitWait;
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+
+    private volatile int size;
+    private volatile Sample lastSample = new Sample(0, 0, 0, 0, 0);
+    private long lastAdjustment = System.nanoTime();
+
+    public PoolSizeController(HikariDataSource hikariDataSource,
+                              ConcurrencyLimitingDataSource concurrencyLimitingDataSource,
+                              PoolSizingPolicy policy,
+                              Duration interval,
+                              MeterRegistry meterRegistry) {
+        this.hikariDataSource = hikariDataSource;
+        this.concurrencyLimitingDataSource = concurrencyLimitingDataSource;
+        this.policy = policy;
+        this.interval = interval;
+
+        String pool = hikariDataSource.getPoolName();
+        this.usage = new TimerInterval(meterRegistry, "hikaricp.connections.usage", pool);
+        this.acquire = new TimerInterval(meterRegistry, "hikaricp.connections.acquire", pool);
+        this.permitWait = new TimerInterval(meterRegistry, "datasource.permits.wait", null);
+
+        for (Decision decision : Decision.values()) {
+            decisions.put(decision, Counter.builder("datasource.pool.sizing.decisions")
+                    .tag("decision", decision.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("datasource.pool.sizing.target", this, controller -> controller.size)
+                .description("Pool size chosen by the pool size controller")
+                .register(meterRegistry);
+        Gauge.builder("datasource.pool.sizing.throughput", this, controller -> controller.lastSample.throughput())
+                .description("Connections returned per second over the last interval")
+                .register(meterRegistry);
+        Gauge.builder("datasource.pool.sizing.busy", this, controller -> controller.lastSample.busy())
+                .description("Connections busy on average over the last interval")
+                .register(meterRegistry);
+
+        if (hikariDataSource.getHikariPoolMXBean() == null) {
+            // an unset pool size is only defaulted when the pool starts, apply it now
+            hikariDataSource.validate();
+        }
+        this.size = hikariDataSource.getMaximumPoolSize();
+        resize(policy.clamp(size));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::adjust, interval);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    void adjust() {
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            // not started yet
+            return;
+        }
+        long now = System.nanoTime();
+        double seconds = (now - lastAdjustment) / 1e9;
+        lastAdjustment = now;
+
+        TimerInterval.Delta used = usage.next();
+        int waiting = pool.getThreadsAwaitingConnection()
+                + (concurrencyLimitingDataSource == null ? 0 : concurrencyLimitingDataSource.queueLength());
+        Sample sample = new Sample(
+                size,
+                used.count() / seconds,
+                acquire.next().meanMillis() + permitWait.next().meanMillis(),
+                used.meanMillis(),
+                waiting);
+        lastSample = sample;
+
+        Decision decision = policy.decide(sample);
+        decisions.get(decision).increment();
+        int next = policy.sizeAfter(decision, size);
+        if (next != size) {
+            log.info("Pool size {} -> {} ({}): {} connections/s, acquire {} ms, held {} ms, {} waiting",
+                    Unbox.box(size), Unbox.box(next), decision,
+                    Unbox.box(Math.round(sample.throughput())),
+                    Unbox.box(sample.acquireMillis()),
+                    Unbox.box(sample.usageMillis()),
+                    Unbox.box(waiting));
+            resize(next);
+        }
+    }
+
+    private synchronized void resize(int next) {
+        int previous = size;
+        HikariConfigMXBean config = hikariDataSource.getHikariConfigMXBean();
+        if (next > previous) {
+            config.setMaximumPoolSize(next);
+            config.setMinimumIdle(next);
+            if (concurrencyLimitingDataSource != null) {
+                concurrencyLimitingDataSource.setMaxConcurrency(next);
+            }
+        } else if (next < previous) {
+            if (concurrencyLimitingDataSource != null) {
+                concurrencyLimitingDataSource.setMaxConcurrency(next);
+            }
+            config.setMinimumIdle(next);
+            config.setMaximumPoolSize(next);
+            evictSurplus();
+        }
+        size = next;
+    }
+
+    private void evictSurplus() {
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return;
+        }
+        int surplus = pool.getTotalConnections() - hikariDataSource.getMaximumPoolSize();
+        for (int i = 0; i < surplus && pool.getIdleConnections() > 0; i++) {
+            // straight from the pool, so the borrowed connection bypasses the wrappers around it
+            try (Connection connection = hikariDataSource.getConnection()) {
+                hikariDataSource.evictConnection(connection);
+            } catch (SQLException e) {
+                log.warn("Could not evict a surplus connection, it is retired at its max lifetime", e);
+                return;
+            }
+        }
+    }
+
+    /*
+        Count and mean time of a cumulative timer since the previous call. A timer that is
+        not registered, like datasource.permits.wait without virtual threads, reads as zero.
+     */
+    private static final class TimerInterval {
+
+        record Delta(long count, double meanMillis) {
+        }
+
+        private final MeterRegistry meterRegistry;
+        private final String name;
+        private final String pool;
+
+        private long count;
+        private double totalNanos;
+
+        private TimerInterval(MeterRegistry meterRegistry, String name, String pool) {
+            this.meterRegistry = meterRegistry;
+            this.name = name;
+            this.pool = pool;
+        }
+
+        private Delta next() {
+            Timer timer = pool == null
+                    ? meterRegistry.find(name).timer()
+                    : meterRegistry.find(name).tag("pool", pool).timer();
+            if (timer == null) {
+                return new Delta(0, 0);
+            }
+            long currentCount = timer.count();
+            double currentTotalNanos = timer.totalTime(TimeUnit.NANOSECONDS);
+            long deltaCount = currentCount - count;
+            double deltaNanos = currentTotalNanos - totalNanos;
+            count = currentCount;
+            totalNanos = currentTotalNanos;
+            return new Delta(deltaCount, deltaCount <= 0 ? 0 : deltaNanos / deltaCount / 1e6);
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.havefunwith.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/*
+    Lets PoolSizeController size the connection pool within customer.pool-sizing.min-size
+    and max-size, instead of a hand picked spring.datasource.hikari.maximum-pool-size.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.pool-sizing.enabled", havingValue = "true")
+public class PoolSizingConfig {
+
+    @Bean
+    PoolSizeController poolSizeController(
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${customer.pool-sizing.min-size:2}") int minSize,
+            @Value("${customer.pool-sizing.max-size:20}") int maxSize,
+            @Value("${customer.pool-sizing.step:2}") int step,
+            @Value("${customer.pool-sizing.interval:10s}") Duration interval,
+            @Value("${customer.pool-sizing.acquire-wait-target:5ms}") Duration acquireWaitTarget,
+            @Value("${customer.pool-sizing.min-throughput-gain:0.05}") double minThroughputGain,
+            @Value("${customer.pool-sizing.shrink-below-utilization:0.5}") double shrinkBelowUtilization,
+            @Value("${customer.pool-sizing.hold-after-knee:6}") int holdAfterKnee) throws SQLException {
+        PoolSizingPolicy policy = new PoolSizingPolicy(
+                minSize,
+                maxSize,
+                step,
+                acquireWaitTarget.toNanos() / 1e6,
+                minThroughputGain,
+                shrinkBelowUtilization,
+                holdAfterKnee);
+        ConcurrencyLimitingDataSource concurrencyLimitingDataSource =
+                dataSource.isWrapperFor(ConcurrencyLimitingDataSource.class)
+                        ? dataSource.unwrap(ConcurrencyLimitingDataSource.class)
+                        : null;
+        return new PoolSizeController(
+                dataSource.unwrap(HikariDataSource.class),
+                concurrencyLimitingDataSource,
+                policy,
+                interval,
+                meterRegistry);
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.havefunwith.datasource;
+
+/*
+    Hill climbing towards the knee of the throughput curve: the pool grows while callers
+    wait for connections and at least shrinkBelowUtilization of it is busy, and shrinks
+    while even the smaller pool would be less busy than that.
+
+    Each growth is checked in the following interval. If callers are still waiting but
+    throughput rose by less than minThroughputGain while connections were held longer,
+    the extra connections only queued up in Postgres: the pool is past the knee, so it
+    backs off a step and holds that size for holdAfterKnee intervals before probing again.
+
+    Not thread safe, decide is called by one scheduled task.
+ */
+final class PoolSizingPolicy {
+
+    enum Decision {
+        GROW, SHRINK, BACK_OFF, HOLD
+    }
+
+    /*
+        One interval of pool activity: connections returned per second, the mean wait for
+        a connection and the mean time one was held, and the callers waiting at the end.
+     */
+    record Sample(int size, double throughput, double acquireMillis, double usageMillis, int waiting) {
+
+        // connections busy on average over the interval, by Little's law
+        double busy() {
+            return throughput * usageMillis / 1000;
+        }
+
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final int step;
+    private final double acquireWaitTargetMillis;
+    private final double minThroughputGain;
+    private final double shrinkBelowUtilization;
+    private final int holdAfterKnee;
+
+    private Sample previous;
+    private Decision previousDecision = Decision.HOLD;
+    private int holdRemaining;
+
+    PoolSizingPolicy(int minSize,
+                     int maxSize,
+                     int step,
+                     double acquireWaitTargetMillis,
+                     double minThroughputGain,
+                     double shrinkBelowUtilization,
+                     int holdAfterKnee) {
+        if (minSize < 1 || maxSize < minSize || step < 1) {
+            throw new IllegalArgumentException(
+                    "Pool sizing needs 1 <= min-size <= max-size and a step of at least 1");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.step = step;
+        this.acquireWaitTargetMillis = acquireWaitTargetMillis;
+        this.minThroughputGain = minThroughputGain;
+        this.shrinkBelowUtilization = shrinkBelowUtilization;
+        this.holdAfterKnee = holdAfterKnee;
+    }
+
+    Decision decide(Sample sample) {
+        Decision decision = evaluate(sample);
+        previous = sample;
+        previousDecision = decision;
+        return decision;
+    }
+
+    int sizeAfter(Decision decision, int size) {
+        return switch (decision) {
+            case GROW -> Math.min(maxSize, size + step);
+            case SHRINK, BACK_OFF -> Math.max(minSize, size - step);
+            case HOLD -> size;
+        };
+    }
+
+    int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+
+    private Decision evaluate(Sample sample) {
+        boolean contended = sample.waiting() > 0 || sample.acquireMillis() > acquireWaitTargetMillis;
+        if (previousDecision == Decision.GROW
+                && contended
+                && sample.size() > minSize
+                && sample.throughput() < previous.throughput() * (1 + minThroughputGain)
+                && sample.usageMillis() > previous.usageMillis()) {
+            holdRemaining = holdAfterKnee;
+            return Decision.BACK_OFF;
+        }
+        if (holdRemaining > 0) {
+            holdRemaining--;
+            return Decision.HOLD;
+        }
+        double busy = sample.busy();
+        // waits while most of the pool idles come from opening connections or bursts, not from its size
+        if (contended && sample.size() < maxSize && busy >= sample.size() * shrinkBelowUtilization) {
+            return Decision.GROW;
+        }
+        // measured against the smaller pool, so a shrink is not undone by the next growth
+        if (!contended
+                && sample.size() > minSize
+                && busy < sizeAfter(Decision.SHRINK, sample.size()) * shrinkBelowUtilization) {
+            return Decision.SHRINK;
+        }
+        return Decision.HOLD;
+    }
+
+}
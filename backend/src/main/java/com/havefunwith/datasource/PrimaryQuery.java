@@ -0,0 +1,18 @@
+package com.havefunwith.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+    Marks a DAO method that only reads, but must see the primary's rows: what it returns
+    outlives the request, like a cache entry, so a lagging replica's row would be served
+    to every later client. Unlike the other methods it is not recorded as a write.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PrimaryQuery {
+}
@@ -0,0 +1,18 @@
+package com.havefunwith.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+    Marks a DAO method that only reads. With read replicas configured its connections may
+    come from a replica, see ReplicaRoutingDataSource. Inside a read-write transaction the
+    method still runs on the primary.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyQuery {
+}
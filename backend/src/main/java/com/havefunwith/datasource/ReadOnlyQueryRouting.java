@@ -0,0 +1,114 @@
+package com.havefunwith.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Decorates a DAO so that its @ReadOnlyQuery methods run marked as reads, which
+    ReplicaRoutingDataSource may serve from a replica, and its other interface methods
+    are recorded as writes with ReadYourWrites once they succeed and changed a row.
+    @PrimaryQuery methods run on the primary without being recorded.
+
+    The proxy is a Spring AOP one, so AopUtils still finds the DAO class behind it, the
+    @Repository post processors that run later, like the repository metrics, need it.
+ */
+public final class ReadOnlyQueryRouting implements MethodInterceptor {
+
+    private static final ThreadLocal<Boolean> READ_ONLY_QUERY = new ThreadLocal<>();
+
+    private final ReadYourWrites readYourWrites;
+    private final Set<Method> readOnlyQueries = new HashSet<>();
+    private final Set<Method> primaryQueries = new HashSet<>();
+
+    private ReadOnlyQueryRouting(ReadYourWrites readYourWrites, Class<?>[] interfaces) {
+        this.readYourWrites = readYourWrites;
+        for (Class<?> daoInterface : interfaces) {
+            for (Method method : daoInterface.getMethods()) {
+                if (method.isAnnotationPresent(ReadOnlyQuery.class)) {
+                    readOnlyQueries.add(method);
+                } else if (method.isAnnotationPresent(PrimaryQuery.class)) {
+                    primaryQueries.add(method);
+                }
+            }
+        }
+    }
+
+    public static Object wrap(Object target, ReadYourWrites readYourWrites, Class<?>[] interfaces) {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(target);
+        proxyFactory.setInterfaces(interfaces);
+        proxyFactory.addAdvice(new ReadOnlyQueryRouting(readYourWrites, interfaces));
+        return proxyFactory.getProxy(target.getClass().getClassLoader());
+    }
+
+    public static boolean hasReadOnlyQueries(Class<?>[] interfaces) {
+        for (Class<?> daoInterface : interfaces) {
+            for (Method method : daoInterface.getMethods()) {
+                if (method.isAnnotationPresent(ReadOnlyQuery.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean isReadOnlyQuery() {
+        return Boolean.TRUE.equals(READ_ONLY_QUERY.get());
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        boolean readOnlyQuery = readOnlyQueries.contains(method);
+        // set either way, a write called from within a read must not go to a replica
+        Boolean previous = READ_ONLY_QUERY.get();
+        READ_ONLY_QUERY.set(readOnlyQuery);
+        try {
+            Object result = invocation.proceed();
+            if (!readOnlyQuery && !primaryQueries.contains(method) && changedRows(result)) {
+                readYourWrites.recordWrite();
+            }
+            return result;
+        } finally {
+            if (previous == null) {
+                READ_ONLY_QUERY.remove();
+            } else {
+                READ_ONLY_QUERY.set(previous);
+            }
+        }
+    }
+
+    /*
+        A write that changed nothing, the DAOs answer false, an empty Optional, 0 or only
+        0 update counts, has nothing for a replica to replay: recording it would cost a
+        round trip to the primary and keep the client's reads there. Any other result,
+        void included, counts as a change.
+     */
+    static boolean changedRows(Object result) {
+        if (result instanceof Boolean changed) {
+            return changed;
+        }
+        if (result instanceof Optional<?> row) {
+            return row.isPresent();
+        }
+        if (result instanceof Number count) {
+            return count.longValue() != 0;
+        }
+        if (result instanceof int[] counts) {
+            // Statement.SUCCESS_NO_INFO is negative, it may have changed a row
+            return Arrays.stream(counts).anyMatch(count -> count != 0);
+        }
+        return true;
+    }
+
+}
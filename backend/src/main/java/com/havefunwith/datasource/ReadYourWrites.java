@@ -0,0 +1,123 @@
+package com.havefunwith.datasource;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/*
+    Lets a client read its own writes while reads go to replicas.
+
+    A Session holds, for the client of the current request, the primary's WAL position
+    after its last write and until when it applies. Within that window only a replica
+    that has replayed up to the position may serve the client's reads, otherwise they go
+    to the primary. The session travels with the client in a cookie, see
+    ReadYourWritesFilter, so it holds across requests and application instances.
+ */
+@Log4j2
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private final ReplicaSet replicaSet;
+    private final Duration window;
+    private final Clock clock;
+
+    public ReadYourWrites(ReplicaSet replicaSet, Duration window, Clock clock) {
+        this.replicaSet = replicaSet;
+        this.window = window;
+        this.clock = clock;
+    }
+
+    public Duration window() {
+        return window;
+    }
+
+    /*
+        Starts the session of the current thread's client. The window of a session read
+        back from a client never reaches further than a window from now.
+     */
+    public Session open(long minimumLsn, long stickyUntilMillis, Consumer<Session> onWrite) {
+        Session session = new Session(onWrite);
+        session.minimumLsn = minimumLsn;
+        session.stickyUntilMillis = Math.min(stickyUntilMillis, clock.millis() + window.toMillis());
+        CURRENT.set(session);
+        return session;
+    }
+
+    public void close() {
+        CURRENT.remove();
+    }
+
+    /*
+        The WAL position a replica must have replayed to serve the current client, 0 when
+        any replica may.
+     */
+    long minimumLsn() {
+        Session session = CURRENT.get();
+        if (session == null || session.stickyUntilMillis <= clock.millis()) {
+            return 0;
+        }
+        return session.minimumLsn;
+    }
+
+    /*
+        Called after a write. Inside a transaction the position is taken once it has
+        committed, a position from before the commit could be replayed without the write.
+     */
+    void recordWrite() {
+        Session session = CURRENT.get();
+        if (session == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stick(session);
+                }
+            });
+        } else {
+            stick(session);
+        }
+    }
+
+    private void stick(Session session) {
+        long lsn;
+        try {
+            lsn = replicaSet.primaryLsn();
+        } catch (SQLException | RuntimeException e) {
+            // no replica can prove it caught up, reads stay on the primary for the whole window
+            log.warn("Could not read the primary's WAL position after a write", e);
+            lsn = Long.MAX_VALUE;
+        }
+        session.minimumLsn = Math.max(session.minimumLsn, lsn);
+        session.stickyUntilMillis = clock.millis() + window.toMillis();
+        session.onWrite.accept(session);
+    }
+
+    public static final class Session {
+
+        private final Consumer<Session> onWrite;
+        private volatile long minimumLsn;
+        private volatile long stickyUntilMillis;
+
+        private Session(Consumer<Session> onWrite) {
+            this.onWrite = onWrite;
+        }
+
+        public long minimumLsn() {
+            return minimumLsn;
+        }
+
+        public long stickyUntilMillis() {
+            return stickyUntilMillis;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.havefunwith.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/*
+    Carries a client's ReadYourWrites session in a cookie: the primary's WAL position
+    after the client's last write, in hex, and until when it applies, in epoch millis.
+    The cookie is set as soon as a write is recorded, while the response is still open,
+    and expires with the window.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "customer-read-after";
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long minimumLsn = 0;
+        long stickyUntilMillis = 0;
+        String value = cookieValue(request);
+        int separator = value == null ? -1 : value.indexOf('-');
+        if (separator > 0) {
+            try {
+                minimumLsn = Long.parseUnsignedLong(value, 0, separator, 16);
+                stickyUntilMillis = Long.parseLong(value, separator + 1, value.length(), 10);
+            } catch (NumberFormatException e) {
+                // not ours, the client starts without a session
+                minimumLsn = 0;
+                stickyUntilMillis = 0;
+            }
+        }
+        readYourWrites.open(minimumLsn, stickyUntilMillis, session -> {
+            if (!response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE,
+                        Long.toHexString(session.minimumLsn()) + "-" + session.stickyUntilMillis());
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, readYourWrites.window().toSeconds()));
+                response.addCookie(cookie);
+            }
+        });
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.close();
+        }
+    }
+
+    private static String cookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+}
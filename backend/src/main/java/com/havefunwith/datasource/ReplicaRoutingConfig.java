@@ -0,0 +1,172 @@
+package com.havefunwith.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Serves reads from the replicas in customer.replicas.urls, see ReplicaRoutingDataSource.
+
+    The pool is wrapped after the statement statistics and before the virtual thread
+    concurrency limit, so the limit covers replica connections too. Replica pools get
+    their own statement statistics and Hikari metrics, tagged with the replica's name.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    ReplicaSet replicaSet(
+            DataSourceProperties dataSourceProperties,
+            ObjectProvider<StatementStatistics> statementStatistics,
+            MeterRegistry meterRegistry,
+            @Value("${customer.replicas.urls:}") String[] urls,
+            @Value("${customer.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${customer.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${customer.replicas.pool-size:10}") int poolSize,
+            @Value("${customer.replicas.connection-timeout:250ms}") Duration connectionTimeout,
+            @Value("${customer.replicas.max-lag:16MB}") DataSize maxLag,
+            @Value("${customer.replicas.health-interval:1s}") Duration healthInterval) {
+        List<ReplicaSet.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + replicas.size();
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setReadOnly(true);
+            // a replica that is down must not hold reads up for long, they fall back to the primary
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            // nor keep the application from starting
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            StatementStatistics statistics = statementStatistics.getIfAvailable();
+            DataSource dataSource = statistics == null ? pool : new StatementStatisticsDataSource(pool, statistics);
+            replicas.add(new ReplicaSet.Replica(name, pool, dataSource));
+        }
+        return new ReplicaSet(replicas, maxLag.toBytes(), healthInterval, meterRegistry);
+    }
+
+    @Bean
+    ReadYourWrites readYourWrites(ReplicaSet replicaSet,
+                                  @Value("${customer.replicas.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWrites(replicaSet, window, Clock.systemUTC());
+    }
+
+    @Bean
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWrites));
+    }
+
+    // declared as the Ordered type, Spring orders post processors by their bean type
+    @Bean
+    static ReplicaRoutingPostProcessor replicaRoutingDataSourcePostProcessor(
+            ObjectProvider<ReplicaSet> replicaSet,
+            ObjectProvider<ReadYourWrites> readYourWrites,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ReplicaRoutingPostProcessor(replicaSet, readYourWrites, meterRegistry);
+    }
+
+    // ordered, so it sees the DAO itself rather than the proxies of unordered post processors
+    @Bean
+    static ReadOnlyQueryRoutingPostProcessor readOnlyQueryRoutingPostProcessor(
+            ObjectProvider<ReadYourWrites> readYourWrites) {
+        return new ReadOnlyQueryRoutingPostProcessor(readYourWrites);
+    }
+
+    /*
+        Marks the reads of every @Repository bean with @ReadOnlyQuery methods.
+     */
+    record ReadOnlyQueryRoutingPostProcessor(ObjectProvider<ReadYourWrites> readYourWrites)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            Class<?> repositoryClass = ClassUtils.getUserClass(AopUtils.getTargetClass(bean));
+            if (!AnnotatedElementUtils.hasAnnotation(repositoryClass, Repository.class)) {
+                return bean;
+            }
+            Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(repositoryClass);
+            if (!ReadOnlyQueryRouting.hasReadOnlyQueries(interfaces)) {
+                return bean;
+            }
+            return ReadOnlyQueryRouting.wrap(bean, readYourWrites.getObject(), interfaces);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+    }
+
+    record ReplicaRoutingPostProcessor(ObjectProvider<ReplicaSet> replicaSet,
+                                       ObjectProvider<ReadYourWrites> readYourWrites,
+                                       ObjectProvider<MeterRegistry> meterRegistry)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && isPool(dataSource)) {
+                LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+                lazy.setTargetDataSource(new ReplicaRoutingDataSource(
+                        dataSource, replicaSet.getObject(), readYourWrites.getObject(), meterRegistry.getObject()));
+                // known up front, so the proxy never takes a connection just to ask for them
+                lazy.setDefaultAutoCommit(true);
+                lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                lazy.afterPropertiesSet();
+                return lazy;
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        // the primary's pool, as it is or wrapped in StatementStatisticsDataSource
+        private static boolean isPool(DataSource dataSource) {
+            if (dataSource instanceof HikariDataSource) {
+                return true;
+            }
+            try {
+                return dataSource instanceof StatementStatisticsDataSource
+                        && dataSource.isWrapperFor(HikariDataSource.class);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.havefunwith.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Hands out replica connections for reads and primary connections for everything else.
+
+    A connection is a read when it is taken inside a read-only transaction, or outside of
+    any transaction during a @ReadOnlyQuery DAO call. Transactions only know they are
+    read-only after they took their connection, so this sits behind a
+    LazyConnectionDataSourceProxy, which fetches the real connection at the first statement.
+
+    Reads fall back to the primary when no replica is available, when none has caught up
+    with the client's last write (see ReadYourWrites), or when taking a connection from
+    the chosen replica fails, which also marks it unavailable until its next health check.
+    Everything else of the DataSource, unwrap included, is the primary's.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+
+    private final ReplicaSet replicaSet;
+    private final ReadYourWrites readYourWrites;
+
+    private final Counter writes;
+    private final Counter readYourWritesReads;
+    private final Counter failoverReads;
+    private final Map<ReplicaSet.Replica, Counter> replicaReads = new HashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    ReplicaSet replicaSet,
+                                    ReadYourWrites readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        super(primary);
+        this.replicaSet = replicaSet;
+        this.readYourWrites = readYourWrites;
+        this.writes = routed(meterRegistry, "primary", "write");
+        this.readYourWritesReads = routed(meterRegistry, "primary", "read_your_writes");
+        this.failoverReads = routed(meterRegistry, "primary", "failover");
+        for (ReplicaSet.Replica replica : replicaSet.replicas()) {
+            replicaReads.put(replica, routed(meterRegistry, replica.name(), "read"));
+        }
+        replicaSet.setPrimary(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isRead()) {
+            writes.increment();
+            return super.getConnection();
+        }
+        long minimumLsn = readYourWrites.minimumLsn();
+        ReplicaSet.Replica replica;
+        while ((replica = replicaSet.choose(minimumLsn)) != null) {
+            try {
+                Connection connection = replica.dataSource().getConnection();
+                replicaReads.get(replica).increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                replicaSet.markUnavailable(replica, e.getMessage());
+            }
+        }
+        if (minimumLsn > 0 && replicaSet.anyAvailable()) {
+            readYourWritesReads.increment();
+        } else {
+            failoverReads.increment();
+        }
+        return super.getConnection();
+    }
+
+    static boolean isRead() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return ReadOnlyQueryRouting.isReadOnlyQuery();
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by ReplicaRoutingDataSource")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+}
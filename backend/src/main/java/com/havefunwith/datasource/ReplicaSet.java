@@ -0,0 +1,202 @@
+package com.havefunwith.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    The read replicas and how far each has replayed the primary's WAL.
+
+    Every health interval the primary's current WAL position is compared with the replay
+    position of each replica. A replica is available while it answers, is still in
+    recovery and lags less than maxLagBytes behind. Until the first check every replica
+    is unavailable, so nothing is read from a replica that was never seen in sync.
+ */
+@Log4j2
+public class ReplicaSet implements SchedulingConfigurer, AutoCloseable {
+
+    private final List<Replica> replicas;
+    private final long maxLagBytes;
+    private final Duration healthInterval;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // set once the primary has been wrapped by ReplicaRoutingDataSource
+    private volatile DataSource primary;
+
+    public ReplicaSet(List<Replica> replicas, long maxLagBytes, Duration healthInterval, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagBytes = maxLagBytes;
+        this.healthInterval = healthInterval;
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagBytes)
+                    .tag("replica", replica.name())
+                    .baseUnit("bytes")
+                    .description("WAL the replica has still to replay")
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .tag("replica", replica.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::checkReplicas, healthInterval);
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    void setPrimary(DataSource primary) {
+        this.primary = primary;
+    }
+
+    /*
+        The next available replica, round robin, that has replayed the WAL up to
+        minimumLsn. Null when there is none.
+     */
+    Replica choose(long minimumLsn) {
+        int size = replicas.size();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, size));
+            if (replica.available && replica.replayLsn >= minimumLsn) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    boolean anyAvailable() {
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long primaryLsn() throws SQLException {
+        DataSource dataSource = primary;
+        if (dataSource == null) {
+            throw new SQLException("The primary is not known yet");
+        }
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+            resultSet.next();
+            return parseLsn(resultSet.getString(1));
+        }
+    }
+
+    void checkReplicas() {
+        long primaryLsn;
+        try {
+            primaryLsn = primaryLsn();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Could not read the primary's WAL position, replica lag is unknown", e);
+            return;
+        }
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text")) {
+                resultSet.next();
+                String replayLsn = resultSet.getString(2);
+                if (!resultSet.getBoolean(1) || replayLsn == null) {
+                    markUnavailable(replica, "it is not in recovery");
+                    continue;
+                }
+                long lsn = parseLsn(replayLsn);
+                long lagBytes = Math.max(0, primaryLsn - lsn);
+                if (lagBytes > maxLagBytes) {
+                    replica.update(false, lsn, lagBytes);
+                    log.warn("Replica {} is {} bytes behind, reads go to the primary", replica.name(), lagBytes);
+                } else {
+                    if (!replica.available) {
+                        log.info("Replica {} is available", replica.name());
+                    }
+                    replica.update(true, lsn, lagBytes);
+                }
+            } catch (SQLException | RuntimeException e) {
+                markUnavailable(replica, e.getMessage());
+            }
+        }
+    }
+
+    void markUnavailable(Replica replica, String reason) {
+        if (replica.available) {
+            log.warn("Replica {} is unavailable, reads go to the primary: {}", replica.name(), reason);
+        }
+        replica.available = false;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.pool() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // a pg_lsn is two hex numbers, the high and the low 32 bits: 16/B374D848
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return Long.parseLong(lsn, 0, slash, 16) << 32 | Long.parseLong(lsn, slash + 1, lsn.length(), 16);
+    }
+
+    /*
+        pool is the replica's own connection pool, used for health checks. dataSource is
+        what reads are served from, the pool wrapped like the primary's.
+     */
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource pool;
+        private final DataSource dataSource;
+
+        private volatile boolean available;
+        private volatile long replayLsn;
+        private volatile long lagBytes;
+
+        public Replica(String name, DataSource pool, DataSource dataSource) {
+            this.name = name;
+            this.pool = pool;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        DataSource pool() {
+            return pool;
+        }
+
+        DataSource dataSource() {
+            return dataSource;
+        }
+
+        void update(boolean available, long replayLsn, long lagBytes) {
+            this.replayLsn = replayLsn;
+            this.lagBytes = lagBytes;
+            this.available = available;
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.havefunwith.datasource;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/*
+    Reduces a SQL statement to its shape, so statements that differ only in literals,
+    whitespace, comments or the length of an IN list or VALUES list share statistics.
+    Literals and bind markers become ?, lists of them (?, ?, ?) become (...).
+
+    The fingerprint is a 64 bit FNV-1a hash of the normalized text, short enough to
+    address a statement by.
+ */
+public final class SqlNormalizer {
+
+    private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_LIST = Pattern.compile("\\(\\.\\.\\.\\)(?:\\s*,\\s*\\(\\.\\.\\.\\))+");
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SqlNormalizer() {}
+
+    public static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                i = skipUntil(sql, i + 2, "\n");
+                appendSpace(normalized);
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = skipUntil(sql, i + 2, "*/");
+                appendSpace(normalized);
+            } else if (c == '\'') {
+                i = skipStringLiteral(sql, i + 1);
+                normalized.append('?');
+            } else if (c == '"') {
+                // quoted identifiers keep their case
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length : end + 1;
+                normalized.append(sql, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(normalized);
+                i++;
+            } else if ((Character.isDigit(c) || c == '$') && !continuesIdentifier(normalized)) {
+                // numbers and $n bind markers
+                i++;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+            } else {
+                normalized.append(Character.toLowerCase(c));
+                i++;
+            }
+        }
+        String text = normalized.toString().trim();
+        text = LIST.matcher(text).replaceAll("(...)");
+        return REPEATED_LIST.matcher(text).replaceAll("(...)");
+    }
+
+    public static String fingerprint(String normalizedSql) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < normalizedSql.length(); i++) {
+            hash ^= normalizedSql.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return String.format(Locale.ROOT, "%016x", hash);
+    }
+
+    private static int skipUntil(String sql, int from, String terminator) {
+        int end = sql.indexOf(terminator, from);
+        return end < 0 ? sql.length() : end + terminator.length();
+    }
+
+    // '' inside a literal is an escaped quote
+    private static int skipStringLiteral(String sql, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean continuesIdentifier(StringBuilder normalized) {
+        if (normalized.isEmpty()) {
+            return false;
+        }
+        char previous = normalized.charAt(normalized.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_';
+    }
+
+    private static void appendSpace(StringBuilder normalized) {
+        if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) != ' ') {
+            normalized.append(' ');
+        }
+    }
+
+}
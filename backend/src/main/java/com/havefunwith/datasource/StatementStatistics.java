@@ -0,0 +1,183 @@
+package com.havefunwith.datasource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Call count, time and rows per statement fingerprint, plus the latest statements that
+    ran longer than the slow threshold.
+
+    Recording never takes a lock: the counters are LongAdders, the maximum a
+    LongAccumulator, and slow statements go into a ring buffer whose slot is claimed
+    with a single getAndIncrement, so under load old samples are simply overwritten.
+    The raw SQL of a statement is mapped to its fingerprint once and cached, the cache
+    stops growing at MAX_CACHED_STATEMENTS for applications that inline literals.
+ */
+public class StatementStatistics {
+
+    private static final int MAX_CACHED_STATEMENTS = 10_000;
+
+    private final long slowThresholdNanos;
+    private final int slowSampleSize;
+
+    private volatile State state;
+
+    public StatementStatistics(Duration slowThreshold, int slowSampleSize) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowSampleSize = slowSampleSize;
+        this.state = new State(slowSampleSize);
+    }
+
+    /*
+        The statistics entry of sql, to record executions and rows against.
+     */
+    public Entry entry(String sql) {
+        State current = state;
+        Entry entry = current.bySql.get(sql);
+        if (entry != null) {
+            return entry;
+        }
+        String normalized = SqlNormalizer.normalize(sql);
+        entry = current.byFingerprint.computeIfAbsent(
+                SqlNormalizer.fingerprint(normalized),
+                fingerprint -> new Entry(fingerprint, normalized));
+        if (current.bySql.size() < MAX_CACHED_STATEMENTS) {
+            current.bySql.putIfAbsent(sql, entry);
+        }
+        return entry;
+    }
+
+    public void recordExecution(Entry entry, String sql, long nanos, long rows, boolean failed) {
+        entry.calls.increment();
+        entry.totalNanos.add(nanos);
+        entry.maxNanos.accumulate(nanos);
+        if (rows > 0) {
+            entry.rows.add(rows);
+        }
+        if (failed) {
+            entry.errors.increment();
+        }
+        if (nanos >= slowThresholdNanos) {
+            State current = state;
+            int slot = (int) (current.slowIndex.getAndIncrement() % slowSampleSize);
+            current.slowStatements.set(slot, new SlowStatement(
+                    entry.fingerprint, sql, nanos / 1e6, rows, failed, Instant.now(), Thread.currentThread().getName()));
+        }
+    }
+
+    /*
+        Starts over. Executions already holding an entry of the old state are lost.
+     */
+    public void reset() {
+        state = new State(slowSampleSize);
+    }
+
+    public Report report(int limit) {
+        State current = state;
+        List<Summary> statements = current.byFingerprint.values().stream()
+                .map(Entry::summary)
+                .sorted(Comparator.comparingDouble(Summary::totalMillis).reversed())
+                .limit(limit)
+                .toList();
+        List<SlowStatement> slowStatements = new ArrayList<>();
+        for (int i = 0; i < current.slowStatements.length(); i++) {
+            SlowStatement slowStatement = current.slowStatements.get(i);
+            if (slowStatement != null) {
+                slowStatements.add(slowStatement);
+            }
+        }
+        slowStatements.sort(Comparator.comparing(SlowStatement::at).reversed());
+        return new Report(current.since, current.byFingerprint.size(), statements, slowStatements);
+    }
+
+    public static final class Entry {
+
+        private final String fingerprint;
+        private final String sql;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Entry(String fingerprint, String sql) {
+            this.fingerprint = fingerprint;
+            this.sql = sql;
+        }
+
+        // rows of a query are only known while its result set is read
+        public void addRow() {
+            rows.increment();
+        }
+
+        private Summary summary() {
+            long callCount = calls.sum();
+            double totalMillis = totalNanos.sum() / 1e6;
+            return new Summary(
+                    fingerprint,
+                    sql,
+                    callCount,
+                    errors.sum(),
+                    totalMillis,
+                    callCount == 0 ? 0 : totalMillis / callCount,
+                    maxNanos.get() / 1e6,
+                    rows.sum()
+            );
+        }
+
+    }
+
+    public record Summary(
+            String fingerprint,
+            String sql,
+            long calls,
+            long errors,
+            double totalMillis,
+            double meanMillis,
+            double maxMillis,
+            long rows
+    ) {
+    }
+
+    public record SlowStatement(
+            String fingerprint,
+            String sql,
+            double millis,
+            long rows,
+            boolean failed,
+            Instant at,
+            String thread
+    ) {
+    }
+
+    public record Report(
+            Instant since,
+            int fingerprints,
+            List<Summary> statements,
+            List<SlowStatement> slowStatements
+    ) {
+    }
+
+    private static final class State {
+
+        private final Instant since = Instant.now();
+        private final ConcurrentHashMap<String, Entry> byFingerprint = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Entry> bySql = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<SlowStatement> slowStatements;
+        private final AtomicLong slowIndex = new AtomicLong();
+
+        private State(int slowSampleSize) {
+            this.slowStatements = new AtomicReferenceArray<>(slowSampleSize);
+        }
+
+    }
+
+}
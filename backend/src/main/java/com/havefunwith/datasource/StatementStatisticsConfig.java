@@ -0,0 +1,62 @@
+package com.havefunwith.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/*
+    Wraps the connection pool in a StatementStatisticsDataSource. The post processor is
+    ordered, so it runs before the unordered ones and statistics sit right on top of the
+    pool, inside the virtual thread concurrency limit: the time waiting for a permit is
+    not counted as statement time. It also runs before replica routing, which is ordered
+    last.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.statement-statistics.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementStatisticsConfig {
+
+    @Bean
+    StatementStatistics statementStatistics(
+            @Value("${customer.statement-statistics.slow-threshold:100ms}") Duration slowThreshold,
+            @Value("${customer.statement-statistics.slow-sample-size:100}") int slowSampleSize) {
+        return new StatementStatistics(slowThreshold, slowSampleSize);
+    }
+
+    @Bean
+    StatementStatisticsEndpoint statementStatisticsEndpoint(StatementStatistics statementStatistics) {
+        return new StatementStatisticsEndpoint(statementStatistics);
+    }
+
+    // declared as the Ordered type, Spring orders post processors by their bean type
+    @Bean
+    static StatementStatisticsPostProcessor statementStatisticsDataSourcePostProcessor(
+            ObjectProvider<StatementStatistics> statementStatistics) {
+        return new StatementStatisticsPostProcessor(statementStatistics);
+    }
+
+    record StatementStatisticsPostProcessor(ObjectProvider<StatementStatistics> statementStatistics)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikariDataSource) {
+                return new StatementStatisticsDataSource(hikariDataSource, statementStatistics.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.havefunwith.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/*
+    Records every statement executed through the DataSource, JPA and JdbcTemplate alike,
+    in StatementStatistics.
+
+    Connections, statements and result sets are proxied. The execute methods are timed
+    and their update counts recorded; rows of a query are counted as the result set is
+    read, so the time covers execution only, not fetching.
+ */
+public class StatementStatisticsDataSource extends DelegatingDataSource {
+
+    private final StatementStatistics statementStatistics;
+
+    public StatementStatisticsDataSource(DataSource targetDataSource, StatementStatistics statementStatistics) {
+        super(targetDataSource);
+        this.statementStatistics = statementStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return recording(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return recording(super.getConnection(username, password));
+    }
+
+    private Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return switch (method.getName()) {
+                        case "createStatement" -> recording((Statement) result, Statement.class, null);
+                        case "prepareStatement" -> recording((Statement) result, PreparedStatement.class, (String) args[0]);
+                        case "prepareCall" -> recording((Statement) result, CallableStatement.class, (String) args[0]);
+                        default -> result;
+                    };
+                });
+    }
+
+    /*
+        preparedSql is null for a plain Statement, which gets its SQL with every execute.
+     */
+    private Statement recording(Statement statement, Class<? extends Statement> type, String preparedSql) {
+        // statements are used by one thread at a time, a plain array is enough
+        String[] lastSql = {preparedSql};
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("getResultSet")) {
+                        ResultSet resultSet = (ResultSet) invoke(statement, method, args);
+                        return resultSet == null || lastSql[0] == null
+                                ? resultSet
+                                : counting(resultSet, statementStatistics.entry(lastSql[0]));
+                    }
+                    if (!name.startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+                    String sql = args != null && args.length > 0 && args[0] instanceof String executed
+                            ? executed
+                            : preparedSql;
+                    if (sql == null) {
+                        return invoke(statement, method, args);
+                    }
+                    lastSql[0] = sql;
+                    StatementStatistics.Entry entry = statementStatistics.entry(sql);
+                    long start = System.nanoTime();
+                    Object result;
+                    try {
+                        result = invoke(statement, method, args);
+                    } catch (Throwable e) {
+                        statementStatistics.recordExecution(entry, sql, System.nanoTime() - start, 0, true);
+                        throw e;
+                    }
+                    statementStatistics.recordExecution(entry, sql, System.nanoTime() - start, updateCount(result), false);
+                    return result instanceof ResultSet resultSet ? counting(resultSet, entry) : result;
+                });
+    }
+
+    private ResultSet counting(ResultSet resultSet, StatementStatistics.Entry entry) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        entry.addRow();
+                    }
+                    return result;
+                });
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof int[] counts) {
+            long rows = 0;
+            for (int count : counts) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        if (result instanceof long[] counts) {
+            long rows = 0;
+            for (long count : counts) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
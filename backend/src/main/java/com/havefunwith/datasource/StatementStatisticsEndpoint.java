@@ -0,0 +1,33 @@
+package com.havefunwith.datasource;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+/*
+    GET /actuator/sqlstats[?limit=n] lists the statements that took the most time in
+    total, with the latest slow ones. DELETE /actuator/sqlstats starts over.
+ */
+@Endpoint(id = "sqlstats")
+public class StatementStatisticsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final StatementStatistics statementStatistics;
+
+    public StatementStatisticsEndpoint(StatementStatistics statementStatistics) {
+        this.statementStatistics = statementStatistics;
+    }
+
+    @ReadOperation
+    public StatementStatistics.Report statements(@Nullable Integer limit) {
+        return statementStatistics.report(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statementStatistics.reset();
+    }
+
+}
@@ -3,10 +3,11 @@ package com.havefunwith.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
-@ResponseStatus(HttpStatus.NOT_MODIFIED)
-public class ResourceNotChangedException extends RuntimeException {
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class RequestValidationException extends RuntimeException {
 
-    public ResourceNotChangedException(String message) {
+    public RequestValidationException(String message) {
         super(message);
     }
+
 }
@@ -0,0 +1,13 @@
+package com.havefunwith.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ResourceVersionConflictException extends RuntimeException {
+
+    public ResourceVersionConflictException(String message) {
+        super(message);
+    }
+
+}
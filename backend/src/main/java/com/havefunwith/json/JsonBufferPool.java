@@ -0,0 +1,45 @@
+package com.havefunwith.json;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+    Output buffers for JSON responses, reused across requests instead of allocated per
+    response. A shared queue rather than a ThreadLocal: with customer.virtual-threads
+    every request has a thread of its own, a buffer per thread would be one per request.
+    Neither side ever waits, an empty pool hands out a new buffer and a full one lets a
+    returned buffer go.
+ */
+public class JsonBufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> buffers;
+
+    public JsonBufferPool(int bufferSize, int maxPooledBuffers) {
+        if (bufferSize < 1 || maxPooledBuffers < 1) {
+            throw new IllegalArgumentException("Buffer size and pooled buffers must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    int pooledBuffers() {
+        return buffers.size();
+    }
+
+}
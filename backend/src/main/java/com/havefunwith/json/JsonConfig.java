@@ -0,0 +1,45 @@
+package com.havefunwith.json;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+/*
+    Boot registers every Module bean with the ObjectMapper it builds. Blackbird replaces
+    the reflective getter, setter and constructor calls of Jackson's bean serializers and
+    deserializers with generated lambdas, for the types without a serializer of their
+    own, like the request records.
+
+    The converter replaces Boot's MappingJackson2HttpMessageConverter for the controllers,
+    the reactive profile writes through the WebFlux encoders instead.
+ */
+@Configuration
+public class JsonConfig {
+
+    @Bean
+    Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    @Profile("!reactive")
+    JsonBufferPool jsonBufferPool(
+            @Value("${customer.json.buffer-size:64KB}") DataSize bufferSize,
+            @Value("${customer.json.pooled-buffers:64}") int pooledBuffers) {
+        return new JsonBufferPool(Math.toIntExact(bufferSize.toBytes()), pooledBuffers);
+    }
+
+    @Bean
+    @Profile("!reactive")
+    MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, JsonBufferPool jsonBufferPool) {
+        return new PooledBufferJsonHttpMessageConverter(objectMapper, jsonBufferPool);
+    }
+
+}
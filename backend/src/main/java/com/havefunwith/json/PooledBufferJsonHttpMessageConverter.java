@@ -0,0 +1,128 @@
+package com.havefunwith.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/*
+    Spring's Jackson converter, serializing into a buffer of the JsonBufferPool first. A
+    response that fits is written to the connection in one go, with a Content-Length, so
+    server.compression can leave the small ones uncompressed and the connection is not
+    chunked. A response that outgrows the buffer is streamed from there on, without a
+    Content-Length, it is large enough to be compressed anyway.
+ */
+public class PooledBufferJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final JsonBufferPool bufferPool;
+
+    public PooledBufferJsonHttpMessageConverter(ObjectMapper objectMapper, JsonBufferPool bufferPool) {
+        super(objectMapper);
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        byte[] buffer = bufferPool.acquire();
+        try {
+            BufferedOutputMessage bufferedMessage = new BufferedOutputMessage(outputMessage, buffer);
+            super.writeInternal(object, type, bufferedMessage);
+            bufferedMessage.body().finish();
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private record BufferedOutputMessage(HttpOutputMessage target, SpillingOutputStream body)
+            implements HttpOutputMessage {
+
+        BufferedOutputMessage(HttpOutputMessage target, byte[] buffer) {
+            this(target, new SpillingOutputStream(target, buffer));
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return target.getHeaders();
+        }
+
+    }
+
+    /*
+        Collects into the buffer until it is full, then writes what it holds and everything
+        after it through to the target's body. Flushes are ignored until then, Jackson
+        flushes once it is done, which must not send the headers before the length is known.
+     */
+    static final class SpillingOutputStream extends OutputStream {
+
+        private final HttpOutputMessage target;
+        private final byte[] buffer;
+        private int count;
+        private OutputStream body;
+
+        SpillingOutputStream(HttpOutputMessage target, byte[] buffer) {
+            this.target = target;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (body == null && count == buffer.length) {
+                spill();
+            }
+            if (body != null) {
+                body.write(b);
+            } else {
+                buffer[count++] = (byte) b;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (body == null && length > buffer.length - count) {
+                spill();
+            }
+            if (body != null) {
+                body.write(bytes, offset, length);
+            } else {
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        // the body is closed by whoever owns the response, not by Jackson
+        @Override
+        public void close() {
+        }
+
+        void finish() throws IOException {
+            if (body == null) {
+                target.getHeaders().setContentLength(count);
+                target.getBody().write(buffer, 0, count);
+            }
+        }
+
+        private void spill() throws IOException {
+            body = target.getBody();
+            body.write(buffer, 0, count);
+            count = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.havefunwith.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+    One logfmt line per request on the "access" logger: method, uri, status, duration and
+    the rate the line was sampled at, so counts taken from the log can be scaled back up.
+
+    Under load a line per request costs more than it tells. Up to max-per-second lines are
+    written each second, beyond that only a sample-rate fraction of requests is logged.
+    Server errors and requests slower than slow-threshold are always logged.
+
+    The logger is asynchronous, writing a line only copies the arguments into the ring
+    buffer. When the buffer is full the line is dropped instead of waited for, see
+    log4j2.component.properties.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LogManager.getLogger("access");
+
+    private final int maxPerSecond;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final LongSupplier nanoTime;
+
+    private final Counter logged;
+    private final Counter sampledOut;
+
+    private final AtomicLong currentSecond = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong requestsThisSecond = new AtomicLong();
+
+    @Autowired
+    public AccessLogFilter(@Value("${customer.access-log.max-per-second:100}") int maxPerSecond,
+                           @Value("${customer.access-log.sample-rate:0.01}") double sampleRate,
+                           @Value("${customer.access-log.slow-threshold:1s}") Duration slowThreshold,
+                           MeterRegistry meterRegistry) {
+        this(maxPerSecond, sampleRate, slowThreshold, meterRegistry, System::nanoTime);
+    }
+
+    AccessLogFilter(int maxPerSecond,
+                    double sampleRate,
+                    Duration slowThreshold,
+                    MeterRegistry meterRegistry,
+                    LongSupplier nanoTime) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Access log sample rate must be between 0 and 1");
+        }
+        this.maxPerSecond = maxPerSecond;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.nanoTime = nanoTime;
+        this.logged = Counter.builder("access.log.requests")
+                .tag("outcome", "logged")
+                .register(meterRegistry);
+        this.sampledOut = Counter.builder("access.log.requests")
+                .tag("outcome", "sampled_out")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = nanoTime.getAsLong();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long end = nanoTime.getAsLong();
+            // an exception leaving the chain is only turned into a 500 by the error
+            // dispatch, after this filter, the response still says 200 here
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            double rate = samplingRate(status, end - start, end);
+            if (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) {
+                logged.increment();
+                log.info("method={} uri={} status={} duration_us={} sample_rate={}",
+                        request.getMethod(),
+                        request.getRequestURI(),
+                        Unbox.box(status),
+                        Unbox.box(TimeUnit.NANOSECONDS.toMicros(end - start)),
+                        Unbox.box(rate));
+            } else {
+                sampledOut.increment();
+            }
+        }
+    }
+
+    /*
+        The budget of a second is approximate: a request racing the turn of the second may
+        count towards either one.
+     */
+    private double samplingRate(int status, long durationNanos, long now) {
+        if (status >= 500 || durationNanos >= slowThresholdNanos) {
+            return 1;
+        }
+        long second = now / TimeUnit.SECONDS.toNanos(1);
+        long previous = currentSecond.get();
+        if (second != previous && currentSecond.compareAndSet(previous, second)) {
+            requestsThisSecond.set(0);
+        }
+        return requestsThisSecond.incrementAndGet() <= maxPerSecond ? 1 : sampleRate;
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.havefunwith.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+    Decorates a repository with a timer per interface method, a counter of the rows each
+    method returned or affected and a counter of errors by exception type, all tagged
+    with the repository bean name.
+
+    What counts as a row depends on the method name: select, find and stream methods
+    return rows (a collection's size, a present Optional, every row handed to a
+    Consumer argument), insert, update, delete and save methods affect rows (a true
+    result, an update count, the sum of batch counts). Other methods, such as the
+    exists checks, are only timed.
+
+    Meters are created up front, so a call costs a map lookup, two nanoTime reads and
+    the increments. Methods returning a Publisher do their work after they return and
+    are passed through untimed.
+ */
+public final class MeteredRepository implements InvocationHandler {
+
+    private static final String TIMER = "repository.calls";
+    private static final String ROWS = "repository.rows";
+    private static final String ERRORS = "repository.errors";
+
+    private final Object target;
+    private final String repository;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, MethodMeters> meters;
+
+    private MeteredRepository(Object target, String repository, MeterRegistry meterRegistry, Class<?>[] interfaces) {
+        this.target = target;
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        Map<Method, MethodMeters> meters = new HashMap<>();
+        for (Class<?> repositoryInterface : interfaces) {
+            for (Method method : repositoryInterface.getMethods()) {
+                if (!Publisher.class.isAssignableFrom(method.getReturnType())) {
+                    meters.put(method, new MethodMeters(method.getName()));
+                }
+            }
+        }
+        this.meters = meters;
+    }
+
+    public static Object wrap(Object target, String repository, MeterRegistry meterRegistry, Class<?>[] interfaces) {
+        return Proxy.newProxyInstance(
+                target.getClass().getClassLoader(),
+                interfaces,
+                new MeteredRepository(target, repository, meterRegistry, interfaces));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodMeters methodMeters = meters.get(method);
+        if (methodMeters == null) {
+            return invokeTarget(method, args);
+        }
+        if (methodMeters.rowKind == RowKind.RETURNED && args != null) {
+            countConsumedRows(args, methodMeters.rows);
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = invokeTarget(method, args);
+            methodMeters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (methodMeters.rows != null) {
+                long rows = rows(result);
+                if (rows > 0) {
+                    methodMeters.rows.increment(rows);
+                }
+            }
+            return result;
+        } catch (Throwable e) {
+            methodMeters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder(ERRORS)
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void countConsumedRows(Object[] args, Counter rows) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer<?> consumer) {
+                Consumer<Object> delegate = (Consumer<Object>) consumer;
+                args[i] = (Consumer<Object>) row -> {
+                    rows.increment();
+                    delegate.accept(row);
+                };
+            }
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Boolean changed) {
+            return changed ? 1 : 0;
+        }
+        if (result instanceof Number count) {
+            return count.longValue();
+        }
+        if (result instanceof int[] counts) {
+            long rows = 0;
+            for (int count : counts) {
+                // the driver may only report that a batched statement succeeded
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    private enum RowKind {
+        RETURNED,
+        AFFECTED,
+        NONE;
+
+        static RowKind of(String methodName) {
+            if (methodName.startsWith("select") || methodName.startsWith("find") || methodName.startsWith("stream")) {
+                return RETURNED;
+            }
+            if (methodName.startsWith("insert") || methodName.startsWith("update")
+                    || methodName.startsWith("delete") || methodName.startsWith("save")) {
+                return AFFECTED;
+            }
+            return NONE;
+        }
+    }
+
+    private final class MethodMeters {
+
+        private final Timer timer;
+        private final RowKind rowKind;
+        private final Counter rows;
+
+        private MethodMeters(String method) {
+            this.timer = Timer.builder(TIMER)
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .register(meterRegistry);
+            this.rowKind = RowKind.of(method);
+            this.rows = rowKind == RowKind.NONE ? null : Counter.builder(ROWS)
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("kind", rowKind.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.havefunwith.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+
+/*
+    Wraps every @Repository bean in a MeteredRepository, so the time spent in the
+    database layer can be told apart from the rest of a request. Unordered post processors
+    run after the ordered ones, so the metrics see exceptions after Spring's persistence
+    exception translation.
+    Spring Data repositories are already covered by the DAOs that call them.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.repository-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryMetricsConfig {
+
+    @Bean
+    static BeanPostProcessor meteredRepositoryPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                Class<?> repositoryClass = ClassUtils.getUserClass(AopUtils.getTargetClass(bean));
+                if (!AnnotatedElementUtils.hasAnnotation(repositoryClass, Repository.class)
+                        || bean instanceof org.springframework.data.repository.Repository<?, ?>) {
+                    return bean;
+                }
+                Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(repositoryClass);
+                if (interfaces.length == 0) {
+                    return bean;
+                }
+                return MeteredRepository.wrap(bean, beanName, meterRegistry.getObject(), interfaces);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.havefunwith.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/*
+    Runs every request, and the blocking DAO calls it makes, on its own virtual thread
+    instead of Tomcat's bounded worker pool. Only compiled by the virtual-threads Maven
+    profile, which builds for Java 21.
+ */
+@Configuration
+@ConditionalOnProperty(value = "customer.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+}
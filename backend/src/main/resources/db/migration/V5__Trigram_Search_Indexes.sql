@@ -0,0 +1,6 @@
+-- Trigram indexes for the fuzzy customer search. pg_trgm is a trusted extension, so the
+-- owner of the database may create it without being a superuser.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX customer_name_trgm_idx ON customer USING gin (name gin_trgm_ops);
+CREATE INDEX customer_email_trgm_idx ON customer USING gin (email gin_trgm_ops);
@@ -0,0 +1,11 @@
+-- Indexes for the filtered customer listing, see CustomerFilterQuery. The expressions
+-- must match the ones in CustomerFilterQuery for the planner to use them.
+
+-- Both end with the id, so a page of a single age or email domain is read in id order
+-- and stops at LIMIT.
+CREATE INDEX customer_age_idx ON customer (age, id);
+CREATE INDEX customer_email_domain_idx ON customer ((lower(split_part(email, '@', 2))), id);
+
+-- text_pattern_ops compares characters, not collation order, so LIKE 'prefix%' becomes
+-- a range scan whatever the database collation is.
+CREATE INDEX customer_name_prefix_idx ON customer (lower(name) text_pattern_ops);
@@ -0,0 +1,118 @@
+-- Customer counts per age and per email domain, kept up to date by the triggers below,
+-- so the analytics endpoint reads a row per bucket instead of grouping the customer table.
+-- Each bucket is split into 16 stripes, a writer updates the stripe of its backend pid,
+-- so concurrent writers rarely queue on the same row lock. Readers sum the stripes.
+CREATE TABLE customer_age_stats (
+    age INT NOT NULL,
+    stripe SMALLINT NOT NULL,
+    customers BIGINT NOT NULL,
+    PRIMARY KEY (age, stripe)
+);
+
+CREATE TABLE customer_email_domain_stats (
+    email_domain TEXT NOT NULL,
+    stripe SMALLINT NOT NULL,
+    customers BIGINT NOT NULL,
+    PRIMARY KEY (email_domain, stripe)
+);
+
+CREATE TYPE customer_stats_change AS (age INT, email_domain TEXT, customers BIGINT);
+
+-- Buckets are upserted in key order, so two statements on the same stripe cannot deadlock.
+-- A transaction of several statements locks them statement after statement, which
+-- concurrent writers on its stripe may do in another order.
+-- PL/pgSQL rather than SQL, so a session plans the upserts once instead of on every call.
+CREATE FUNCTION customer_stats_add(changes customer_stats_change[]) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    writer_stripe SMALLINT := pg_backend_pid() % 16;
+BEGIN
+    INSERT INTO customer_age_stats AS s (age, stripe, customers)
+    SELECT c.age, writer_stripe, sum(c.customers)
+    FROM unnest(changes) c
+    GROUP BY c.age
+    HAVING sum(c.customers) <> 0
+    ORDER BY c.age
+    ON CONFLICT ON CONSTRAINT customer_age_stats_pkey
+        DO UPDATE SET customers = s.customers + EXCLUDED.customers;
+
+    INSERT INTO customer_email_domain_stats AS s (email_domain, stripe, customers)
+    SELECT c.email_domain, writer_stripe, sum(c.customers)
+    FROM unnest(changes) c
+    GROUP BY c.email_domain
+    HAVING sum(c.customers) <> 0
+    ORDER BY c.email_domain
+    ON CONFLICT ON CONSTRAINT customer_email_domain_stats_pkey
+        DO UPDATE SET customers = s.customers + EXCLUDED.customers;
+END;
+$$;
+
+-- Statement level, reading the transition tables: a multi-row INSERT or a COPY costs one
+-- upsert per bucket, not one per row. A JDBC batch is still one statement per row, which
+-- is why bulk inserts are a single INSERT ... SELECT FROM unnest per chunk, see
+-- CustomerJDBCDataAccessService.insertCustomers. The email domain is the expression of
+-- customer_email_domain_idx.
+CREATE FUNCTION customer_stats_changed() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM customer_stats_add(ARRAY(
+            SELECT ROW(age, lower(split_part(email, '@', 2)), count(*))::customer_stats_change
+            FROM new_rows
+            GROUP BY age, lower(split_part(email, '@', 2))));
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM customer_stats_add(ARRAY(
+            SELECT ROW(age, lower(split_part(email, '@', 2)), -count(*))::customer_stats_change
+            FROM old_rows
+            GROUP BY age, lower(split_part(email, '@', 2))));
+    ELSE
+        -- rows whose age and domain did not change cancel out
+        PERFORM customer_stats_add(ARRAY(
+            SELECT ROW(age, email_domain, sum(delta))::customer_stats_change
+            FROM (SELECT age, lower(split_part(email, '@', 2)) AS email_domain, 1 AS delta FROM new_rows
+                  UNION ALL
+                  SELECT age, lower(split_part(email, '@', 2)), -1 FROM old_rows) changed
+            GROUP BY age, email_domain
+            HAVING sum(delta) <> 0));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION customer_stats_truncated() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    DELETE FROM customer_age_stats;
+    DELETE FROM customer_email_domain_stats;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER customer_stats_insert
+    AFTER INSERT ON customer
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_stats_changed();
+
+CREATE TRIGGER customer_stats_update
+    AFTER UPDATE ON customer
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_stats_changed();
+
+CREATE TRIGGER customer_stats_delete
+    AFTER DELETE ON customer
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_stats_changed();
+
+CREATE TRIGGER customer_stats_truncate
+    AFTER TRUNCATE ON customer
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_stats_truncated();
+
+INSERT INTO customer_age_stats (age, stripe, customers)
+SELECT age, 0, count(*)
+FROM customer
+GROUP BY age;
+
+INSERT INTO customer_email_domain_stats (email_domain, stripe, customers)
+SELECT lower(split_part(email, '@', 2)), 0, count(*)
+FROM customer
+GROUP BY lower(split_part(email, '@', 2));
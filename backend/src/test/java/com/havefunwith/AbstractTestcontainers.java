@@ -23,7 +23,7 @@ public abstract class AbstractTestcontainers {
                 postgreSQLContainer.getJdbcUrl(),
                 postgreSQLContainer.getUsername(),
                 postgreSQLContainer.getPassword()
-        ).load();
+).load();
         flyway.migrate();
         System.out.println();
     }
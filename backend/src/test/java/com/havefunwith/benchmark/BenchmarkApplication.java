@@ -0,0 +1,91 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.Main;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerDao;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    The application context, without the web server, on a Testcontainers Postgres.
+    Benchmarks get the same beans, pool and Hibernate settings as production, with
+    SQL logging turned off so it does not end up in the measurement. The repository
+    metrics are off too, the in-memory DAOs are measured without them.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda",
+            "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica"
+    };
+
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
+    private final PostgreSQLContainer<?> postgreSQLContainer;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(PostgreSQLContainer<?> postgreSQLContainer,
+                                 ConfigurableApplicationContext context) {
+        this.postgreSQLContainer = postgreSQLContainer;
+        this.context = context;
+    }
+
+    static BenchmarkApplication start(int rows) {
+        PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3");
+        postgreSQLContainer.start();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "--spring.jpa.show-sql=false",
+                        "--customer.repository-metrics.enabled=false",
+                        "--logging.level.root=WARN"
+                );
+        BenchmarkApplication application = new BenchmarkApplication(postgreSQLContainer, context);
+        application.seed(rows);
+        return application;
+    }
+
+    static List<Customer> customers(int rows) {
+        List<Customer> customers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            customers.add(new Customer(
+                    FIRST_NAMES[i % FIRST_NAMES.length] + " Lastname" + i,
+                    18 + i % 80,
+                    "customer" + i + "@benchmark.com"
+            ));
+        }
+        return customers;
+    }
+
+    <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // batched through the jdbc DAO, whichever implementation is being measured
+    private void seed(int rows) {
+        CustomerDao customerDao = getBean("jdbc", CustomerDao.class);
+        List<Customer> customers = customers(rows);
+        for (int from = 0; from < rows; from += SEED_CHUNK_SIZE) {
+            customerDao.insertCustomers(customers.subList(from, Math.min(from + SEED_CHUNK_SIZE, rows)));
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        postgreSQLContainer.stop();
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerColumnarDataAccessService;
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerListDataAccessService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Every CustomerDao implementation behind the same operations, so the choice of the
+    one CustomerService uses is backed by numbers. jpa and jdbc run against a
+    Testcontainers Postgres, list and columnar in memory.
+
+    Reads pick a random existing customer. insertCustomer keeps adding rows, so the
+    table grows by the number of measured inserts; updateCustomer always changes the
+    name, so every call writes.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerDaoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerDaoBenchmark {
+
+    @Param({"jpa", "jdbc", "list", "columnar"})
+    public String dao;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private BenchmarkApplication application;
+    private CustomerDao customerDao;
+    private long[] ids;
+    private String[] emails;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (dao) {
+            case "jpa", "jdbc" -> {
+                application = BenchmarkApplication.start(rows);
+                customerDao = application.getBean(dao, CustomerDao.class);
+            }
+            case "list" -> customerDao = seed(new CustomerListDataAccessService());
+            case "columnar" -> customerDao = seed(new CustomerColumnarDataAccessService());
+            default -> throw new IllegalArgumentException("Unknown dao " + dao);
+        }
+        List<Customer> customers = customerDao.selectAllCustomers();
+        ids = customers.stream().mapToLong(Customer::getId).toArray();
+        emails = customers.stream().map(Customer::getEmail).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (application != null) {
+            application.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Customer> selectCustomerById() {
+        return customerDao.selectCustomerById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Customer> selectAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    @Benchmark
+    public boolean insertCustomer() {
+        long n = sequence++;
+        return customerDao.insertCustomer(new Customer("Inserted " + n, 30, "inserted" + n + "@benchmark.com"));
+    }
+
+    @Benchmark
+    public Optional<Customer> updateCustomer() {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return customerDao.updateCustomer(new Customer(id, "Updated " + sequence++, null, null));
+    }
+
+    @Benchmark
+    public boolean existsPersonWithEmail() {
+        return customerDao.existsPersonWithEmail(emails[ThreadLocalRandom.current().nextInt(emails.length)]);
+    }
+
+    private CustomerDao seed(CustomerDao customerDao) {
+        BenchmarkApplication.customers(rows).forEach(customerDao::insertCustomer);
+        return customerDao;
+    }
+
+}
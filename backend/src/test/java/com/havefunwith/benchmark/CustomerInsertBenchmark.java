@@ -0,0 +1,99 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.customer.Customer;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    JPA insert throughput with and without pooled id allocation.
+
+    blockSize = 1 reproduces the old allocationSize = 1 behaviour (one nextval per row,
+    no insert batching), blockSize = 50 is what the V3 migration sets. Any other size is
+    set on the sequence after migrating, Hibernate adopts the sequence increment at
+    startup (increment_size_mismatch_strategy = fix).
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerInsertBenchmark {
+
+    private static final int CUSTOMERS_PER_TRANSACTION = 500;
+
+    @Param({"1", "50"})
+    public int blockSize;
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private HikariDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3");
+        postgreSQLContainer.start();
+
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+        dataSource.setUsername(postgreSQLContainer.getUsername());
+        dataSource.setPassword(postgreSQLContainer.getPassword());
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .load()
+                .migrate();
+        new JdbcTemplate(dataSource).execute("ALTER SEQUENCE customer_id_seq INCREMENT BY " + blockSize);
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan("com.havefunwith.customer");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "validate",
+                "hibernate.id.sequence.increment_size_mismatch_strategy", "fix",
+                "hibernate.jdbc.batch_size", "50",
+                "hibernate.order_inserts", "true"
+        ));
+        entityManagerFactoryBean.afterPropertiesSet();
+        entityManagerFactory = entityManagerFactoryBean.getObject();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+        dataSource.close();
+        postgreSQLContainer.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS_PER_TRANSACTION)
+    public void insertCustomers() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < CUSTOMERS_PER_TRANSACTION; i++) {
+                long n = sequence++;
+                entityManager.persist(new Customer("Customer " + n, 30, "customer." + n + "@benchmark.com"));
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.havefunwith.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havefunwith.customer.Customer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+    JSON serialization of Customer with an ObjectMapper built the way Spring configures
+    it for the controllers: a single customer, and a page of PAGE_SIZE customers.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerJsonBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private Customer customer;
+    private List<Customer> customers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customer = new Customer(1L, "James Lastname1", 42, "customer1@benchmark.com", 0L);
+        customers = LongStream.rangeClosed(1, PAGE_SIZE)
+                .mapToObj(n -> new Customer(n, "James Lastname" + n, 18 + (int) (n % 80), "customer" + n + "@benchmark.com", 0L))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] writeCustomer() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] writeCustomers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customers);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.havefunwith.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+    The body of the single customer and of the list endpoint as the controllers write it,
+    into a reused buffer like PooledBufferJsonHttpMessageConverter, and gzipped the way
+    server.compression does when encoding is gzip. body is what gets serialized:
+      entity     the Customer entity, by Jackson's bean serializer
+      blackbird  the same, with the BlackbirdModule registered
+      response   CustomerResponse, by its own serializer
+    The time per operation is the CPU time of a request's body, the bytes it puts on the
+    wire are printed once per trial. -prof gc (on in the benchmark profile) adds the
+    allocation per request.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerResponseBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerResponseBenchmark {
+
+    private static final int LIST_SIZE = 1000;
+
+    @Param({"entity", "blackbird", "response"})
+    public String body;
+
+    @Param({"identity", "gzip"})
+    public String encoding;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+
+    private ObjectMapper objectMapper;
+    private Object customer;
+    private Object customers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (body.equals("blackbird")) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        Customer entity = new Customer(1L, "James Lastname1", 42, "customer1@benchmark.com", 0L);
+        List<Customer> entities = LongStream.rangeClosed(1, LIST_SIZE)
+                .mapToObj(n -> new Customer(n, "James Lastname" + n, 18 + (int) (n % 80), "customer" + n + "@benchmark.com", 0L))
+                .toList();
+        boolean response = body.equals("response");
+        customer = response ? CustomerResponse.from(entity) : entity;
+        customers = response ? CustomerResponse.from(entities) : entities;
+
+        System.out.printf("%n%s, %s: %d bytes per customer, %d bytes per list of %d%n",
+                body, encoding, write(customer), write(customers), LIST_SIZE);
+    }
+
+    @Benchmark
+    public int writeCustomer() throws IOException {
+        return write(customer);
+    }
+
+    @Benchmark
+    public int writeCustomers() throws IOException {
+        return write(customers);
+    }
+
+    private int write(Object value) throws IOException {
+        buffer.reset();
+        if (encoding.equals("gzip")) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                objectMapper.writeValue(gzip, value);
+            }
+        } else {
+            objectMapper.writeValue(buffer, value);
+        }
+        return buffer.size();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+    CustomerRowMapper.mapRow on a real pgjdbc ResultSet, so the score includes the
+    driver decoding the columns, which is most of the cost of mapping a row. The rows
+    are fetched once into a scrollable ResultSet, no round trips are measured.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerRowMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerRowMapperBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private Connection connection;
+    private Statement statement;
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3");
+        postgreSQLContainer.start();
+        connection = DriverManager.getConnection(
+                postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(),
+                postgreSQLContainer.getPassword()
+        );
+        statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        var sql = """
+                SELECT n::bigint AS id,
+                       'Customer Lastname' || n AS name,
+                       18 + n % 80 AS age,
+                       'customer' || n || '@benchmark.com' AS email,
+                       0::bigint AS version
+                FROM generate_series(1, %s) AS n
+                """.formatted(ROWS);
+        resultSet = statement.executeQuery(sql);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        resultSet.close();
+        statement.close();
+        connection.close();
+        postgreSQLContainer.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapRow(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            Customer customer = customerRowMapper.mapRow(resultSet, rowNum++);
+            blackhole.consume(customer);
+        }
+    }
+
+}
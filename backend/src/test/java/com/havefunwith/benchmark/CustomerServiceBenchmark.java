@@ -0,0 +1,82 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.customer.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The CustomerService request paths on top of the jpa and jdbc DAOs, cache included.
+
+    getCachedCustomer reads from a hot set smaller than the cache, so after warmup it
+    measures hits, getCustomer reads anywhere in the table and mostly misses once the
+    table outgrows the cache. updateCustomer always changes the name.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    private static final int CACHE_SIZE = 10_000;
+    private static final int HOT_CUSTOMERS = 1_000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"jpa", "jdbc"})
+    public String dao;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private BenchmarkApplication application;
+    private CustomerService customerService;
+    private long[] ids;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start(rows);
+        CustomerDao customerDao = application.getBean(dao, CustomerDao.class);
+        customerService = new CustomerService(
+                customerDao,
+                new CustomerCache(CACHE_SIZE, Duration.ofMinutes(10), new SimpleMeterRegistry()),
+                application.getBean(CustomerEmailFilter.class)
+        );
+        ids = customerDao.selectAllCustomers().stream().mapToLong(Customer::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public Customer getCachedCustomer() {
+        return customerService.getCustomer(ids[ThreadLocalRandom.current().nextInt(Math.min(HOT_CUSTOMERS, ids.length))]);
+    }
+
+    @Benchmark
+    public Customer getCustomer() {
+        return customerService.getCustomer(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public CustomerPage getCustomers() {
+        long afterId = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return customerService.getCustomers(CustomerCursor.encode(afterId), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Customer updateCustomer() {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return customerService.updateCustomer(id, new CustomerUpdateRequest("Updated " + sequence++, null, null));
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.havefunwith.benchmark;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerColumnarDataAccessService;
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerListDataAccessService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Retained heap per customer of the in-memory stores, measured with JOL after loading
+    the same rows into each. The score includes the JOL heap walk, the bytesPerRow
+    counter is the number to compare.
+
+    Names repeat a small set of first names, as real data does, so the columnar
+    dictionary encoding is exercised.
+
+    mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CustomerStoreMemoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+// JOL needs the magic field offset to walk record classes such as the list store rows
+@Fork(value = 1, jvmArgsAppend = "-Djol.magicFieldOffset=true")
+public class CustomerStoreMemoryBenchmark {
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda",
+            "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica"
+    };
+
+    @Param({"list", "columnar"})
+    public String store;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private List<Customer> customers;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerRow;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            customers.add(new Customer(
+                    FIRST_NAMES[i % FIRST_NAMES.length] + " Lastname" + i,
+                    18 + i % 80,
+                    "customer" + i + "@example.com"
+            ));
+        }
+    }
+
+    @Benchmark
+    public CustomerDao load(Footprint footprint) {
+        CustomerDao dao = "columnar".equals(store)
+                ? new CustomerColumnarDataAccessService()
+                : new CustomerListDataAccessService();
+        dao.insertCustomers(customers);
+        footprint.bytesPerRow = GraphLayout.parseInstance(dao).totalSize() / rows;
+        return dao;
+    }
+}
@@ -3,12 +3,16 @@ package com.havefunwith.customer.integration;
 import com.github.javafaker.Faker;
 import com.github.javafaker.Name;
 import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerAnalytics;
+import com.havefunwith.customer.CustomerPage;
 import com.havefunwith.customer.CustomerRegistrationRequest;
 import com.havefunwith.customer.CustomerUpdateRequest;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
@@ -71,7 +75,7 @@ public class CustomerIntegrationTest {
         );
 
         assertThat(allCustomers)
-                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version")
                 .contains(expectedCustomer);
 
         // find customer id through unique email
@@ -95,6 +99,207 @@ public class CustomerIntegrationTest {
                 .isEqualTo(expectedCustomer);
     }
 
+    /*
+        TO DO COMMENTS
+    */
+    @Test
+    void canSearchCustomersByNameFragment() {
+        String lastName = "Searchable" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        String email = "search_" + UUID.randomUUID() + "@emailtesting.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Jane " + lastName, email, RANDOM.nextInt(18, 99)
+        );
+
+        // create customer
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // search by the last name, in lower case
+        CustomerPage page = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI + "/search")
+                        .queryParam("q", lastName.toLowerCase())
+                        .queryParam("limit", 5)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+
+        // check the customer is the only match
+        assertThat(page).isNotNull();
+        assertThat(page.customers()).extracting(Customer::getEmail).containsExactly(email);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void canRevalidateAndConditionallyUpdateCustomer() {
+        String email = "etag_" + UUID.randomUUID() + "@emailtesting.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                new Faker().name().fullName(), email, 30
+        );
+
+        // create customer
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        long customerId = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI + "/search")
+                        .queryParam("q", email)
+                        .build())
+                .exchange()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody()
+                .customers().get(0).getId();
+
+        // get customer and its ETag
+        String eTag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        // revalidate with the ETag, nothing changed
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // an update that changes nothing still succeeds, with the same ETag
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 30)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, eTag);
+
+        // update only if unchanged
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        String updatedETag = webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // with several tags the current version is read first, the answer still has the new ETag
+        String multiMatchETag = webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_MATCH, eTag + ", " + updatedETag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 32)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(multiMatchETag).isNotEqualTo(updatedETag);
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_MATCH, multiMatchETag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 33)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // the old ETag no longer matches
+        webTestClient.delete()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customerId)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void canGetCustomerAnalyticsOfNewCustomer() {
+        String email = "analytics_" + UUID.randomUUID() + "@emailtesting.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                new Faker().name().fullName(), email, 42
+        );
+
+        // create customer
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // get analytics in buckets of 5 years
+        CustomerAnalytics analytics = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI + "/analytics")
+                        .queryParam("bucketWidth", 5)
+                        .queryParam("emailDomains", 3)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerAnalytics.class)
+                .returnResult()
+                .getResponseBody();
+
+        // check the customer's age bucket is counted and the buckets add up to the total
+        assertThat(analytics).isNotNull();
+        assertThat(analytics.customers()).isPositive();
+        assertThat(analytics.ageDistribution())
+                .anySatisfy(bucket -> {
+                    assertThat(bucket.fromAge()).isEqualTo(40);
+                    assertThat(bucket.toAge()).isEqualTo(44);
+                    assertThat(bucket.customers()).isPositive();
+                });
+        assertThat(analytics.ageDistribution().stream().mapToLong(CustomerAnalytics.AgeBucket::customers).sum())
+                .isEqualTo(analytics.customers());
+        assertThat(analytics.topEmailDomains()).hasSizeLessThanOrEqualTo(3);
+    }
+
     /*
         TO DO COMMENTS
     */
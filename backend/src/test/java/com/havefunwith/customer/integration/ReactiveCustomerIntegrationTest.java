@@ -0,0 +1,160 @@
+package com.havefunwith.customer.integration;
+
+import com.havefunwith.AbstractTestcontainers;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerPage;
+import com.havefunwith.customer.CustomerRegistrationRequest;
+import com.havefunwith.customer.CustomerUpdateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Runs the reactive profile against its own Postgres container. Flyway migrates the
+    container through the JDBC datasource, R2DBC then serves the requests.
+ */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactiveCustomerIntegrationTest extends AbstractTestcontainers {
+
+    private static final String CUSTOMER_URI = "api/v1/customers";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    private static void registerR2dbcProperties(DynamicPropertyRegistry dynamicPropertyRegistry) {
+        dynamicPropertyRegistry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://%s:%d/%s".formatted(
+                postgreSQLContainer.getHost(),
+                postgreSQLContainer.getFirstMappedPort(),
+                postgreSQLContainer.getDatabaseName()));
+        dynamicPropertyRegistry.add("spring.r2dbc.username", postgreSQLContainer::getUsername);
+        dynamicPropertyRegistry.add("spring.r2dbc.password", postgreSQLContainer::getPassword);
+    }
+
+    @Test
+    void canRegisterUpdateAndDeleteCustomer() {
+        String email = UUID.randomUUID() + "@reactive.com";
+
+        // create customer, a second registration with the same email is a conflict
+        register(new CustomerRegistrationRequest(FAKER.name().fullName(), email, 30))
+                .expectStatus().isOk();
+        register(new CustomerRegistrationRequest(FAKER.name().fullName(), email, 31))
+                .expectStatus().isEqualTo(409);
+
+        // find the customer in the streamed list
+        Customer customer = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .filter(c -> c.getEmail().equals(email))
+                .blockFirst();
+        assertThat(customer).isNotNull();
+
+        // update with the current version, then again with the stale one
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, null, 40, customer.getVersion());
+        update(customer.getId(), updateRequest).expectStatus().isOk();
+        update(customer.getId(), updateRequest).expectStatus().isEqualTo(409);
+
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customer.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Customer.class)
+                .value(updated -> assertThat(updated.getAge()).isEqualTo(40));
+
+        // delete customer, then it is gone
+        webTestClient.delete()
+                .uri(CUSTOMER_URI + "/{id}", customer.getId())
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", customer.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void canPageThroughCustomers() {
+        for (int i = 0; i < 3; i++) {
+            register(new CustomerRegistrationRequest(
+                    FAKER.name().fullName(), UUID.randomUUID() + "@reactive.com", 20 + i))
+                    .expectStatus().isOk();
+        }
+
+        CustomerPage firstPage = webTestClient.get()
+                .uri(uri -> uri.path(CUSTOMER_URI).queryParam("limit", 2).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(firstPage).isNotNull();
+        assertThat(firstPage.customers()).hasSize(2);
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        List<Customer> secondPage = webTestClient.get()
+                .uri(uri -> uri.path(CUSTOMER_URI)
+                        .queryParam("limit", 2)
+                        .queryParam("cursor", firstPage.nextCursor())
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody()
+                .customers();
+
+        assertThat(secondPage).isNotEmpty();
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.customers().get(1).getId());
+    }
+
+    @Test
+    void exportStreamsEveryCustomer() {
+        register(new CustomerRegistrationRequest(
+                FAKER.name().fullName(), UUID.randomUUID() + "@reactive.com", 20))
+                .expectStatus().isOk();
+
+        Customer first = webTestClient.get()
+                .uri(CUSTOMER_URI + "/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .blockFirst();
+
+        assertThat(first).isNotNull();
+    }
+
+    private WebTestClient.ResponseSpec register(CustomerRegistrationRequest request) {
+        return webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec update(Long id, CustomerUpdateRequest request) {
+        return webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerUpdateRequest.class)
+                .exchange();
+    }
+}
@@ -0,0 +1,30 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.AcceptEncoding;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AcceptEncodingTest {
+
+    @Test
+    void acceptsListedCodingsWithAPositiveWeight() {
+        // Then
+        assertThat(AcceptEncoding.accepts("gzip", "gzip")).isTrue();
+        assertThat(AcceptEncoding.accepts("deflate, GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(AcceptEncoding.accepts("x-gzip", "gzip")).isTrue();
+        assertThat(AcceptEncoding.accepts("br, *;q=0.1", "gzip")).isTrue();
+    }
+
+    @Test
+    void refusesCodingsWithZeroWeightOrNotListed() {
+        // Then
+        assertThat(AcceptEncoding.accepts(null, "gzip")).isFalse();
+        assertThat(AcceptEncoding.accepts("gzip;q=0", "gzip")).isFalse();
+        assertThat(AcceptEncoding.accepts("gzip; q=0.000, *", "gzip")).isFalse();
+        assertThat(AcceptEncoding.accepts("*;q=0", "gzip")).isFalse();
+        assertThat(AcceptEncoding.accepts("br, deflate", "gzip")).isFalse();
+        assertThat(AcceptEncoding.accepts("identity, x-gzipped", "gzip")).isFalse();
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.AbstractTestcontainers;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerAnalytics.EmailDomainCount;
+import com.havefunwith.customer.CustomerAnalyticsJDBCDataAccessService;
+import com.havefunwith.customer.CustomerJDBCDataAccessService;
+import com.havefunwith.customer.CustomerRowMapper;
+import com.havefunwith.customer.CustomerStatsDrift;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    The counts are kept by the V7__Customer_Stats.sql triggers, so customers are written
+    through the customer DAO and the counts read back through the analytics one. The
+    container is shared by the tests, each uses its own email domain.
+ */
+class CustomerAnalyticsJDBCDataAccessServiceTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private CustomerJDBCDataAccessService customerDao;
+    private CustomerAnalyticsJDBCDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+        underTest = new CustomerAnalyticsJDBCDataAccessService(jdbcTemplate);
+    }
+
+    @Test
+    void countsFollowInsertUpdateAndDelete() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        long before = underTest.countCustomers();
+        Customer first = new Customer(FAKER.name().fullName(), 21, "first@" + domain);
+        Customer second = new Customer(FAKER.name().fullName(), 25, "second@" + domain.toUpperCase());
+        customerDao.insertCustomer(first);
+        customerDao.insertCustomer(second);
+
+        // When
+        customerDao.updateCustomer(new Customer(first.getId(), null, 30, "first@other." + domain));
+        customerDao.deleteCustomer(second.getId());
+
+        // Then
+        assertThat(underTest.countCustomers()).isEqualTo(before + 1);
+        assertThat(countOf(domain)).isZero();
+        assertThat(countOf("other." + domain)).isEqualTo(1);
+        assertThat(underTest.reconcile().isEmpty()).isTrue();
+    }
+
+    @Test
+    void selectAgeDistributionSumsBuckets() {
+        // Given
+        customerDao.insertCustomer(new Customer(FAKER.name().fullName(), 120, UUID.randomUUID() + "@age.test"));
+        customerDao.insertCustomer(new Customer(FAKER.name().fullName(), 129, UUID.randomUUID() + "@age.test"));
+
+        // When
+        var actual = underTest.selectAgeDistribution(10);
+
+        // Then
+        assertThat(actual).anySatisfy(bucket -> {
+            assertThat(bucket.fromAge()).isEqualTo(120);
+            assertThat(bucket.toAge()).isEqualTo(129);
+            assertThat(bucket.customers()).isGreaterThanOrEqualTo(2);
+        });
+        assertThat(actual).isSortedAccordingTo((a, b) -> Integer.compare(a.fromAge(), b.fromAge()));
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        customerDao.insertCustomer(new Customer(FAKER.name().fullName(), 40, "drift@" + domain));
+        // a write the triggers do not see
+        jdbcTemplate.update("UPDATE customer_email_domain_stats SET customers = customers + 5 WHERE email_domain = ?",
+                domain);
+
+        // When
+        CustomerStatsDrift actual = underTest.reconcile();
+
+        // Then
+        assertThat(actual.emailDomainBuckets()).isEqualTo(1);
+        assertThat(actual.emailDomainCustomers()).isEqualTo(5);
+        assertThat(countOf(domain)).isEqualTo(1);
+        assertThat(underTest.reconcile().isEmpty()).isTrue();
+    }
+
+    private long countOf(String domain) {
+        return underTest.selectTopEmailDomains(100_000).stream()
+                .filter(count -> count.emailDomain().equals(domain))
+                .mapToLong(EmailDomainCount::customers)
+                .findFirst()
+                .orElse(0);
+    }
+
+}
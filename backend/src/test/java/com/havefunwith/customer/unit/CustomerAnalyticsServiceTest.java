@@ -0,0 +1,60 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.CustomerAnalytics;
+import com.havefunwith.customer.CustomerAnalytics.AgeBucket;
+import com.havefunwith.customer.CustomerAnalytics.EmailDomainCount;
+import com.havefunwith.customer.CustomerAnalyticsDao;
+import com.havefunwith.customer.CustomerAnalyticsService;
+import com.havefunwith.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerAnalyticsServiceTest {
+
+    @Mock
+    private CustomerAnalyticsDao customerAnalyticsDao;
+
+    @InjectMocks
+    private CustomerAnalyticsService underTest;
+
+    @Test
+    void canGetAnalytics() {
+        // Given
+        List<AgeBucket> ages = List.of(new AgeBucket(20, 29, 2), new AgeBucket(30, 39, 1));
+        List<EmailDomainCount> emailDomains = List.of(new EmailDomainCount("email.com", 3));
+        Mockito.when(customerAnalyticsDao.countCustomers()).thenReturn(3L);
+        Mockito.when(customerAnalyticsDao.selectAgeDistribution(10)).thenReturn(ages);
+        Mockito.when(customerAnalyticsDao.selectTopEmailDomains(5)).thenReturn(emailDomains);
+
+        // When
+        CustomerAnalytics actual = underTest.getAnalytics(10, 5);
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerAnalytics(3, ages, emailDomains));
+    }
+
+    @Test
+    void willThrowWhenAnalyticsRequestIsNotValid() {
+        // Then
+        assertThatThrownBy(() -> underTest.getAnalytics(0, 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Bucket width must be between 1 and 100");
+        assertThatThrownBy(() -> underTest.getAnalytics(10, 101))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Number of email domains must be between 1 and 100");
+        Mockito.verify(customerAnalyticsDao, never()).selectAgeDistribution(anyInt());
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.*;
+import com.havefunwith.customer.CustomerRegistrationResult.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+
+/*
+    Business Layer Test
+ */
+@ExtendWith(MockitoExtension.class)
+class CustomerBulkRegistrationServiceTest {
+
+    // Mock the DAO layer to isolate the service for testing.
+    @Mock
+    private CustomerDao customerDao;
+
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+
+    @InjectMocks
+    private CustomerBulkRegistrationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        // By default the filter cannot rule any email out.
+        Mockito.lenient().when(customerEmailFilter.mightContain(any())).thenReturn(true);
+    }
+
+    @Test
+    void canAddCustomers() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("John Doe", "john_doe@email.com", 23),
+                new CustomerRegistrationRequest("Jane Doe", "jane_doe@email.com", 31)
+        );
+
+        // Mock the DAO to report no existing emails and insert every row.
+        Mockito.when(customerDao.selectExistingEmails(any())).thenReturn(Set.of());
+        Mockito.when(customerDao.insertCustomers(anyList())).thenReturn(new int[]{1, 1});
+
+        // When
+        CustomerBulkRegistrationResponse actual = underTest.addCustomers(requests);
+
+        // Then
+        // Capture the batch handed to the DAO.
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Customer>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(customerDao).insertCustomers(captor.capture());
+
+        assertThat(captor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly("john_doe@email.com", "jane_doe@email.com");
+        assertThat(actual.created()).isEqualTo(2);
+        assertThat(actual.rejected()).isZero();
+        assertThat(actual.results()).extracting(CustomerRegistrationResult::status)
+                .containsExactly(Status.CREATED, Status.CREATED);
+    }
+
+    @Test
+    void willReportEachRejectedItemWithoutFailingTheBatch() {
+        // Given
+        // One valid, one invalid, one already stored, one repeated in the request
+        // and one that loses a race with a concurrent registration.
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("John Doe", "john_doe@email.com", 23),
+                new CustomerRegistrationRequest("", "no_name@email.com", 23),
+                new CustomerRegistrationRequest("Jane Doe", "exists@email.com", 31),
+                new CustomerRegistrationRequest("Johnny", "john_doe@email.com", 40),
+                new CustomerRegistrationRequest("Racer", "racer@email.com", 50)
+        );
+
+        Mockito.when(customerDao.selectExistingEmails(List.of(
+                        "john_doe@email.com", "exists@email.com", "racer@email.com")))
+                .thenReturn(Set.of("exists@email.com"));
+        Mockito.when(customerDao.insertCustomers(anyList())).thenReturn(new int[]{1, 0});
+
+        // When
+        CustomerBulkRegistrationResponse actual = underTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual.created()).isEqualTo(1);
+        assertThat(actual.rejected()).isEqualTo(4);
+        assertThat(actual.results()).extracting(CustomerRegistrationResult::status)
+                .containsExactly(
+                        Status.CREATED,
+                        Status.INVALID,
+                        Status.DUPLICATE,
+                        Status.DUPLICATE,
+                        Status.DUPLICATE);
+        assertThat(actual.results().get(1).message()).isEqualTo("Name is required");
+    }
+
+    @Test
+    void willCountRowsWithoutUpdateCountAsCreated() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("John Doe", "john_doe@email.com", 23),
+                new CustomerRegistrationRequest("Jane Doe", "jane_doe@email.com", 31)
+        );
+
+        Mockito.when(customerDao.selectExistingEmails(anyList())).thenReturn(Set.of());
+        Mockito.when(customerDao.insertCustomers(anyList()))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 0});
+
+        // When
+        CustomerBulkRegistrationResponse actual = underTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual.results()).extracting(CustomerRegistrationResult::status)
+                .containsExactly(Status.CREATED, Status.DUPLICATE);
+    }
+
+    @Test
+    void willOnlyCheckEmailsTheFilterCannotRuleOut() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("John Doe", "john_doe@email.com", 23),
+                new CustomerRegistrationRequest("Jane Doe", "jane_doe@email.com", 31)
+        );
+
+        // Mock the filter to rule out every email.
+        Mockito.when(customerEmailFilter.mightContain(any())).thenReturn(false);
+        Mockito.when(customerDao.insertCustomers(anyList())).thenReturn(new int[]{1, 1});
+
+        // When
+        CustomerBulkRegistrationResponse actual = underTest.addCustomers(requests);
+
+        // Then
+        // Verify that no duplicate check was sent and the new emails reach the filter.
+        assertThat(actual.created()).isEqualTo(2);
+        Mockito.verify(customerDao, never()).selectExistingEmails(any());
+        Mockito.verify(customerEmailFilter).put("john_doe@email.com");
+        Mockito.verify(customerEmailFilter).put("jane_doe@email.com");
+    }
+
+    @Test
+    void willNotQueryTheDatabaseWhenEveryItemIsInvalid() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("John Doe", "not-an-email", 23),
+                new CustomerRegistrationRequest("Jane Doe", "jane_doe@email.com", -1)
+        );
+
+        // When
+        CustomerBulkRegistrationResponse actual = underTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual.results()).extracting(CustomerRegistrationResult::message)
+                .containsExactly("Email [not-an-email] is not valid", "Age must be between 0 and 150");
+        Mockito.verify(customerDao, never()).selectExistingEmails(any());
+        Mockito.verify(customerDao, never()).insertCustomers(any());
+    }
+}
@@ -0,0 +1,62 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCacheTest {
+
+    private final CustomerCache underTest =
+            new CustomerCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @Test
+    void callersCannotMutateCachedCustomer() {
+        // Given
+        Customer stored = new Customer(1L, "John Doe", 23, "john_doe@email.com", 0L);
+        underTest.get(1L, id -> Optional.of(stored));
+
+        // When
+        // Mutate both the loaded instance and a copy handed out by the cache.
+        stored.setName("Changed");
+        underTest.get(1L, id -> Optional.empty()).orElseThrow().setEmail("changed@email.com");
+
+        // Then
+        Customer actual = underTest.get(1L, id -> Optional.empty()).orElseThrow();
+        assertThat(actual.getName()).isEqualTo("John Doe");
+        assertThat(actual.getEmail()).isEqualTo("john_doe@email.com");
+    }
+
+    @Test
+    void missingCustomerIsNotCached() {
+        // When
+        underTest.get(1L, id -> Optional.empty());
+        Optional<Customer> actual = underTest.get(1L,
+                id -> Optional.of(new Customer(id, "John Doe", 23, "john_doe@email.com", 0L)));
+
+        // Then
+        assertThat(actual).isPresent();
+        assertThat(underTest.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        // Given
+        underTest.get(1L, id -> Optional.of(new Customer(id, "John Doe", 23, "john_doe@email.com", 0L)));
+        underTest.get(1L, id -> Optional.empty());
+
+        // When
+        underTest.invalidate(1L);
+        Optional<Customer> actual = underTest.get(1L, id -> Optional.empty());
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(underTest.stats().hitCount()).isEqualTo(1);
+        assertThat(underTest.stats().missCount()).isEqualTo(2);
+    }
+}
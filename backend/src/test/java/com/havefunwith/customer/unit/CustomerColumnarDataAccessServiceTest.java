@@ -0,0 +1,167 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerColumnarDataAccessService;
+import com.havefunwith.exception.DuplicatedResourceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerColumnarDataAccessServiceTest {
+
+    private final CustomerColumnarDataAccessService underTest = new CustomerColumnarDataAccessService();
+
+    @Test
+    void insertedCustomerReadsBackUnchanged() {
+        // Given
+        Customer customer = new Customer("Jane  van Doe", 30, "jäne@email.com");
+
+        // When
+        boolean actual = underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(underTest.selectCustomerById(customer.getId())).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Jane  van Doe");
+            assertThat(c.getAge()).isEqualTo(30);
+            assertThat(c.getEmail()).isEqualTo("jäne@email.com");
+            assertThat(c.getVersion()).isZero();
+        });
+        assertThat(underTest.existsPersonWithEmail("jäne@email.com")).isTrue();
+        assertThat(underTest.insertCustomer(new Customer("Other", 40, "jäne@email.com"))).isFalse();
+    }
+
+    @Test
+    void storesManyRowsAcrossIndexResizes() {
+        // Given
+        List<Customer> customers = IntStream.range(0, 10_000)
+                .mapToObj(i -> new Customer("Name" + (i % 7) + " Last" + i, i % 100, "customer" + i + "@email.com"))
+                .toList();
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).containsOnly(1);
+        assertThat(underTest.selectAllCustomers()).hasSize(10_000);
+        assertThat(underTest.selectCustomerById(customers.get(9_999).getId()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("customer9999@email.com"));
+        assertThat(underTest.selectExistingEmails(List.of("customer42@email.com", "missing@email.com")))
+                .isEqualTo(Set.of("customer42@email.com"));
+    }
+
+    @Test
+    void searchCustomersMatchesNamesAndEmails() {
+        // Given
+        Customer byName = new Customer("Marlon Brando", 80, "brando@email.com");
+        Customer byEmail = new Customer("Someone Else", 40, "marlon.b@email.com");
+        Customer deleted = new Customer("Marlon Deleted", 50, "deleted@email.com");
+        underTest.insertCustomer(new Customer("Jane Doe", 30, "jane_doe@email.com"));
+        underTest.insertCustomer(byName);
+        underTest.insertCustomer(byEmail);
+        underTest.insertCustomer(deleted);
+        underTest.deleteCustomer(deleted.getId());
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("Marlon", 0, 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId)
+                .containsExactly(byName.getId(), byEmail.getId());
+        assertThat(underTest.searchCustomers("--", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void deleteLeavesOtherRowsAndKeysetPagesIntact() {
+        // Given
+        List<Customer> customers = IntStream.range(0, 100)
+                .mapToObj(i -> new Customer("Customer " + i, 30, "customer" + i + "@email.com"))
+                .toList();
+        underTest.insertCustomers(customers);
+
+        // When
+        // Delete every even customer.
+        for (int i = 0; i < 100; i += 2) {
+            assertThat(underTest.deleteCustomer(customers.get(i).getId())).isTrue();
+        }
+
+        // Then
+        List<Customer> pages = new ArrayList<>();
+        long afterId = 0;
+        List<Customer> page;
+        while (!(page = underTest.selectCustomersAfter(afterId, 7)).isEmpty()) {
+            pages.addAll(page);
+            afterId = page.get(page.size() - 1).getId();
+        }
+        assertThat(pages).extracting(Customer::getEmail)
+                .containsExactlyElementsOf(IntStream.range(0, 100)
+                        .filter(i -> i % 2 == 1)
+                        .mapToObj(i -> "customer" + i + "@email.com")
+                        .toList());
+        assertThat(underTest.existsPersonWithEmail("customer0@email.com")).isFalse();
+        assertThat(underTest.existsPersonById(customers.get(1).getId())).isTrue();
+        assertThat(underTest.deleteCustomer(customers.get(0).getId())).isFalse();
+    }
+
+    @Test
+    void deleteCustomerWithVersionOnlyDeletesThatVersion() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+        Customer updated = underTest.updateCustomer(new Customer(customer.getId(), "Jane Roe", null, null)).orElseThrow();
+
+        // Then
+        assertThat(underTest.deleteCustomer(customer.getId(), updated.getVersion() - 1)).isFalse();
+        assertThat(underTest.existsPersonById(customer.getId())).isTrue();
+        assertThat(underTest.deleteCustomer(customer.getId(), updated.getVersion())).isTrue();
+        assertThat(underTest.existsPersonById(customer.getId())).isFalse();
+    }
+
+    @Test
+    void updateCustomerChangesColumnsAndEmailIndex() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+        underTest.insertCustomer(new Customer("John Doe", 30, "john_doe@email.com"));
+
+        // When
+        var actual = underTest.updateCustomer(new Customer(customer.getId(), "Janet", 31, "janet@email.com", 0L));
+
+        // Then
+        assertThat(actual).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Janet");
+            assertThat(c.getAge()).isEqualTo(31);
+            assertThat(c.getVersion()).isEqualTo(1L);
+        });
+        assertThat(underTest.existsPersonWithEmail("jane_doe@email.com")).isFalse();
+        assertThat(underTest.existsPersonWithEmail("janet@email.com")).isTrue();
+        assertThat(underTest.updateCustomer(new Customer(customer.getId(), "Jane", null, null, 0L))).isEmpty();
+        assertThat(underTest.updateCustomer(new Customer(customer.getId(), "Janet", null, null, null))).isEmpty();
+        assertThatThrownBy(() -> underTest.updateCustomer(
+                new Customer(customer.getId(), null, null, "john_doe@email.com", null)))
+                .isInstanceOf(DuplicatedResourceException.class);
+    }
+
+    @Test
+    void streamAllCustomersVisitsEveryLiveRow() {
+        // Given
+        List<Customer> customers = IntStream.range(0, 25)
+                .mapToObj(i -> new Customer("Customer " + i, 30, "customer" + i + "@email.com"))
+                .toList();
+        underTest.insertCustomers(customers);
+        underTest.deleteCustomer(customers.get(3).getId());
+
+        // When
+        List<Customer> actual = new ArrayList<>();
+        underTest.streamAllCustomers(10, actual::add);
+
+        // Then
+        assertThat(actual).hasSize(24);
+    }
+}
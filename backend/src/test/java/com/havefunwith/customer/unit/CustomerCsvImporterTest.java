@@ -0,0 +1,109 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.AbstractTestcontainers;
+import com.havefunwith.customer.CustomerCsvImporter;
+import com.havefunwith.customer.CustomerEmailFilter;
+import com.havefunwith.customer.CustomerImportResult;
+import com.havefunwith.customer.CustomerJDBCDataAccessService;
+import com.havefunwith.customer.CustomerRegistrationResult.Status;
+import com.havefunwith.customer.CustomerRowMapper;
+import com.havefunwith.exception.RequestValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CustomerCsvImporterTest extends AbstractTestcontainers {
+
+    private CustomerCsvImporter underTest;
+    private CustomerJDBCDataAccessService customerDao;
+
+    @BeforeEach
+    void setUp() {
+        // COPY and the merge must share one connection, so run them in a real transaction.
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        customerDao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+        CustomerEmailFilter emailFilter = new CustomerEmailFilter(
+                customerDao, 1000, 0.01, 1000, new SimpleMeterRegistry());
+        underTest = new CustomerCsvImporter(jdbcTemplate, transactionTemplate, emailFilter);
+    }
+
+    @Test
+    void importCsv() {
+        // Generate a CSV body with a header and two new customers.
+        String first = UUID.randomUUID() + "@import.com";
+        String second = UUID.randomUUID() + "@import.com";
+        InputStream csv = csv("""
+                name,email,age
+                John Doe,%s,24
+                "Doe, Jane",%s,31
+                """.formatted(first, second));
+
+        // Import the CSV.
+        CustomerImportResult actual = underTest.importCsv(csv, true);
+
+        // Assert that every row was imported.
+        assertThat(actual.rowsRead()).isEqualTo(2);
+        assertThat(actual.rowsImported()).isEqualTo(2);
+        assertThat(actual.rejectedRows()).isEmpty();
+        assertThat(customerDao.existsPersonWithEmail(first)).isTrue();
+        assertThat(customerDao.existsPersonWithEmail(second)).isTrue();
+    }
+
+    @Test
+    void importCsvReportsRejectedRows() {
+        // Generate a CSV body with an invalid row, a repeated email and an existing email.
+        String existing = UUID.randomUUID() + "@import.com";
+        underTest.importCsv(csv("Existing,%s,40\n".formatted(existing)), false);
+
+        String repeated = UUID.randomUUID() + "@import.com";
+        InputStream csv = csv("""
+                John Doe,%s,24
+                No Age,%s,old
+                Johnny,%s,25
+                Again,%s,50
+                """.formatted(repeated, UUID.randomUUID() + "@import.com", repeated, existing));
+
+        // Import the CSV.
+        CustomerImportResult actual = underTest.importCsv(csv, false);
+
+        // Assert that only the first row was imported and each rejection is reported.
+        assertThat(actual.rowsRead()).isEqualTo(4);
+        assertThat(actual.rowsImported()).isEqualTo(1);
+        assertThat(actual.rowsRejected()).isEqualTo(3);
+        assertThat(actual.rejectedRows())
+                .extracting(CustomerImportResult.RejectedRow::row, CustomerImportResult.RejectedRow::status)
+                .containsExactly(
+                        tuple(2L, Status.INVALID),
+                        tuple(3L, Status.DUPLICATE),
+                        tuple(4L, Status.DUPLICATE));
+    }
+
+    @Test
+    void importCsvRejectsMalformedBody() {
+        // A row with too many columns cannot be copied at all.
+        InputStream csv = csv("John Doe,john@import.com,24,extra\n");
+
+        // Assert that the import fails as a bad request and nothing is kept.
+        assertThatThrownBy(() -> underTest.importCsv(csv, false))
+                .isInstanceOf(RequestValidationException.class);
+        assertThat(customerDao.existsPersonWithEmail("john@import.com")).isFalse();
+    }
+
+    private static InputStream csv(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
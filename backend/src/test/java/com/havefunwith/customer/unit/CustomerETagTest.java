@@ -0,0 +1,53 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerETag;
+import com.havefunwith.customer.CustomerIfMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerETagTest {
+
+    @Test
+    void customerETagIsItsQuotedVersion() {
+        // Given
+        Customer customer = new Customer(7L, "Jane Doe", 30, "jane_doe@email.com", 3L);
+
+        // Then
+        assertThat(CustomerETag.of(customer)).isEqualTo("\"3\"");
+    }
+
+    @Test
+    void listETagChangesWithAnyVersionIdOrCursor() {
+        // Given
+        Customer first = new Customer(1L, "John Doe", 23, "john_doe@email.com", 0L);
+        Customer second = new Customer(2L, "Jane Doe", 30, "jane_doe@email.com", 0L);
+        Customer secondUpdated = new Customer(2L, "Jane Roe", 30, "jane_doe@email.com", 1L);
+
+        // When
+        String eTag = CustomerETag.of(List.of(first, second), null);
+
+        // Then
+        assertThat(CustomerETag.of(List.of(first, second), null)).isEqualTo(eTag);
+        assertThat(CustomerETag.of(List.of(first, secondUpdated), null)).isNotEqualTo(eTag);
+        assertThat(CustomerETag.of(List.of(first), null)).isNotEqualTo(eTag);
+        assertThat(CustomerETag.of(List.of(first, second), "Mg")).isNotEqualTo(eTag);
+        assertThat(eTag).startsWith("W/\"").endsWith("\"");
+    }
+
+    @Test
+    void ifMatchParsesIfMatch() {
+        // Then
+        assertThat(CustomerETag.ifMatch(null)).isNull();
+        // "*" is not the same as no header, it fails for a missing customer
+        assertThat(CustomerETag.ifMatch("*")).isEqualTo(CustomerIfMatch.ANY);
+        assertThat(CustomerETag.ifMatch("\"3\"").versions()).containsExactly(3L);
+        assertThat(CustomerETag.ifMatch("\"3\", \"5\"").versions()).containsExactlyInAnyOrder(3L, 5L);
+        // weak tags never match If-Match, nor do tags that are not a version
+        assertThat(CustomerETag.ifMatch("W/\"3\", \"abc\"").versions()).isEmpty();
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerEmailFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailFilterTest {
+
+    @Mock
+    private CustomerDao customerDao;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void everyEmailIsAMaybeUntilTheFirstBuild() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 100, meterRegistry);
+
+        // Then
+        assertThat(underTest.mightContain("john_doe@email.com")).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsEveryStoredEmail() {
+        // Given
+        // Mock the DAO to stream 1000 stored customers.
+        streamCustomers(1000);
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 100, meterRegistry);
+
+        // When
+        underTest.rebuildAsync().join();
+
+        // Then
+        // Every stored email is found, and new emails are mostly ruled out.
+        assertThat(IntStream.range(0, 1000).allMatch(i -> underTest.mightContain(email(i)))).isTrue();
+        long falsePositives = IntStream.range(1000, 11_000)
+                .filter(i -> underTest.mightContain(email(i)))
+                .count();
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(meterRegistry.get("customer.email.filter.memory").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("customer.email.filter.false.positive.probability").gauge().value())
+                .isEqualTo(0.01);
+    }
+
+    @Test
+    void putAddsEmailAfterBuild() {
+        // Given
+        streamCustomers(0);
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 100, meterRegistry);
+        underTest.rebuildAsync().join();
+
+        // When
+        underTest.put("john_doe@email.com");
+
+        // Then
+        assertThat(underTest.mightContain("john_doe@email.com")).isTrue();
+    }
+
+    @Test
+    void enoughStaleEntriesTriggerRebuild() {
+        // Given
+        streamCustomers(0);
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 2, meterRegistry);
+
+        // When
+        underTest.markStale();
+        underTest.markStale();
+
+        // Then
+        Mockito.verify(customerDao, Mockito.timeout(5000)).streamAllCustomers(anyInt(), any());
+    }
+
+    @Test
+    void staleEntriesMarkedDuringRebuildCountTowardsTheNext() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 100, meterRegistry);
+        underTest.markStale();
+        underTest.markStale();
+        // Mock the DAO to have a customer deleted while the table is scanned.
+        Mockito.doAnswer(invocation -> {
+            underTest.markStale();
+            return null;
+        }).when(customerDao).streamAllCustomers(anyInt(), any());
+
+        // When
+        underTest.rebuildAsync().join();
+
+        // Then
+        assertThat(meterRegistry.get("customer.email.filter.stale.entries").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void emailsPutDuringRebuildReachTheRebuiltFilter() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(customerDao, 1000, 0.01, 100, meterRegistry);
+        // Mock the DAO to have a customer registered while the table is scanned.
+        Mockito.doAnswer(invocation -> {
+            underTest.put("john_doe@email.com");
+            return null;
+        }).when(customerDao).streamAllCustomers(anyInt(), any());
+
+        // When
+        underTest.rebuildAsync().join();
+
+        // Then
+        assertThat(underTest.mightContain("john_doe@email.com")).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamCustomers(int count) {
+        Mockito.doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(1);
+            IntStream.range(0, count)
+                    .forEach(i -> consumer.accept(new Customer((long) i, "Customer " + i, 30, email(i))));
+            return null;
+        }).when(customerDao).streamAllCustomers(anyInt(), any());
+    }
+
+    private static String email(int i) {
+        return "customer" + i + "@email.com";
+    }
+}
@@ -0,0 +1,73 @@
+package com.havefunwith.customer.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerExporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerExporterTest {
+
+    // Mock the DAO layer to feed rows to the exporter.
+    @Mock
+    private CustomerDao customerDao;
+
+    private CustomerExporter underTest;
+
+    private final int fetchSize = 2;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerExporter(customerDao, new ObjectMapper(), fetchSize);
+    }
+
+    @Test
+    void exportNdjsonWritesOneCustomerPerLine() throws Exception {
+        // Given
+        // Mock the DAO to push two rows into the consumer it receives.
+        Mockito.doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(1);
+            consumer.accept(new Customer(1L, "John Doe", 24, "john_doe@email.com"));
+            consumer.accept(new Customer(2L, "Jane Doe", 31, "jane_doe@email.com"));
+            return null;
+        }).when(customerDao).streamAllCustomers(eq(fetchSize), any());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        underTest.exportNdjson(outputStream);
+
+        // Then
+        // Assert that every customer is written as a standalone JSON document.
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"id\":1", "\"email\":\"john_doe@email.com\"");
+        assertThat(lines[1]).contains("\"id\":2", "\"email\":\"jane_doe@email.com\"");
+    }
+
+    @Test
+    void exportNdjsonWritesNothingForEmptyTable() throws Exception {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        underTest.exportNdjson(outputStream);
+
+        // Then
+        assertThat(outputStream.size()).isZero();
+    }
+}
@@ -0,0 +1,64 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.CustomerFilter;
+import com.havefunwith.customer.CustomerFilterQuery;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerFilterQueryTest {
+
+    @Test
+    void filtersOfTheSameShapeShareOneStatement() {
+        // Given
+        CustomerFilter young = new CustomerFilter(18, 30, null, null);
+        CustomerFilter old = new CustomerFilter(60, 99, null, null);
+
+        // When
+        CustomerFilterQuery actual = CustomerFilterQuery.of(young);
+
+        // Then
+        assertThat(actual).isSameAs(CustomerFilterQuery.of(old));
+        assertThat(actual).isNotSameAs(CustomerFilterQuery.of(new CustomerFilter(18, null, null, null)));
+        assertThat(actual.sql()).contains("age >= ?").contains("age <= ?").doesNotContain("18");
+        assertThat(actual.nativeSql()).contains("id > ?1").contains("age >= ?2").contains("LIMIT ?4");
+    }
+
+    @Test
+    void parametersFollowThePlaceholders() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(null, 40, "Email.COM", "50%_off\\");
+
+        // When
+        Object[] actual = CustomerFilterQuery.of(filter).parameters(filter, 7L, 11);
+
+        // Then
+        // The domain is lower cased for the expression index and the prefix's wildcards are escaped.
+        assertThat(actual).containsExactly(7L, 40, "email.com", "50\\%\\_off\\\\%", 11);
+    }
+
+    @Test
+    void willThrowWhenTheFilterHasAnotherShape() {
+        // Given
+        CustomerFilterQuery query = CustomerFilterQuery.of(new CustomerFilter(18, null, null, null));
+
+        // Then
+        assertThatThrownBy(() -> query.parameters(new CustomerFilter(null, 18, null, null), 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesTheSameCustomersAsTheSql() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(20, 30, "email.com", "ja");
+
+        // Then
+        assertThat(filter.matches("Jane Doe", 25, "jane@Email.com")).isTrue();
+        assertThat(filter.matches("Jane Doe", 31, "jane@email.com")).isFalse();
+        assertThat(filter.matches("Jane Doe", 25, "jane@email.com.br")).isFalse();
+        assertThat(filter.matches("Anja Doe", 25, "anja@email.com")).isFalse();
+        assertThat(CustomerFilter.NONE.isEmpty()).isTrue();
+    }
+
+}
@@ -2,18 +2,29 @@ package com.havefunwith.customer.unit;
 
 import com.havefunwith.AbstractTestcontainers;
 import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerFilter;
 import com.havefunwith.customer.CustomerJDBCDataAccessService;
 import com.havefunwith.customer.CustomerRowMapper;
 import com.havefunwith.customer.CustomerUpdateRequest;
+import com.havefunwith.exception.DuplicatedResourceException;
+import com.zaxxer.hikari.HikariDataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 
 /*
@@ -57,6 +68,86 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actualCustomers).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // Insert three customers so there is always more than one page.
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    20,
+                    FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID()
+            ));
+        }
+
+        // Retrieve the first page and the page after it.
+        List<Customer> firstPage = underTest.selectCustomersAfter(0L, 2);
+        List<Customer> secondPage = underTest.selectCustomersAfter(firstPage.get(1).getId(), 2);
+
+        // Assert that pages are ordered by id and never overlap.
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+        assertThat(secondPage).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(firstPage.get(1).getId()));
+    }
+
+    @Test
+    void selectCustomersAfterWithFilter() {
+        // Insert customers of one random domain, only some of them match the filter.
+        String domain = UUID.randomUUID() + ".example.com";
+        Customer match = new Customer("Jane Doe", 30, "jane@" + domain);
+        Customer tooOld = new Customer("Janet Doe", 70, "janet@" + domain);
+        Customer otherName = new Customer("John Doe", 30, "john@" + domain);
+        underTest.insertCustomer(match);
+        underTest.insertCustomer(tooOld);
+        underTest.insertCustomer(otherName);
+
+        // Filter by age, domain in upper case and name prefix.
+        List<Customer> actual = underTest.selectCustomersAfter(
+                new CustomerFilter(18, 40, domain.toUpperCase(), "ja"), 0L, 10);
+
+        // Assert that only the matching customer is returned.
+        assertThat(actual).extracting(Customer::getId).containsExactly(match.getId());
+    }
+
+    @Test
+    void searchCustomers() {
+        // Insert customers whose names only match the query fuzzily or not at all.
+        String lastName = "Zyx" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        Customer exact = new Customer("Jane " + lastName, 20, FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID());
+        Customer other = new Customer(FAKER.name().fullName(), 20, FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID());
+        underTest.insertCustomer(exact);
+        underTest.insertCustomer(other);
+
+        // Search by the last name, in lower case.
+        List<Customer> actual = underTest.searchCustomers(lastName.toLowerCase(), 0, 10);
+
+        // Assert that only the matching customer is found.
+        assertThat(actual).extracting(Customer::getId).containsExactly(exact.getId());
+        assertThat(underTest.searchCustomers(lastName, 1, 10)).isEmpty();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Generate fake data and create a new customer object.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                20,
+                email
+        );
+
+        // Add a new customer to the database.
+        underTest.insertCustomer(customer);
+
+        // Stream all customers using a fetch size smaller than the table.
+        List<Customer> streamed = new ArrayList<>();
+        underTest.streamAllCustomers(1, streamed::add);
+
+        // Assert that every row was streamed, including the new customer.
+        assertThat(streamed).hasSameSizeAs(underTest.selectAllCustomers());
+        assertThat(streamed).anySatisfy(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
     @Test
     void selectCustomerById() {
         // Generate fake customer data and create new customer object.
@@ -114,13 +205,132 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         );
 
         // Add a new customer to the database.
-        underTest.insertCustomer(customer);
+        boolean inserted = underTest.insertCustomer(customer);
 
         // Check if a customer with the specified email exists in the system.
         var actual = underTest.existsPersonWithEmail(email);
 
-        // Assert that the value is true.
+        // Assert that the value is true and the generated id was set.
+        assertThat(inserted).isTrue();
         assertThat(actual).isTrue();
+        assertThat(customer.getId()).isNotNull();
+    }
+
+    @Test
+    void insertCustomerReturnsFalseWhenEmailExists() {
+        // Add a new customer to the database.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, email));
+
+        // Add another customer with the same email.
+        boolean actual = underTest.insertCustomer(new Customer(FAKER.name().fullName(), 30, email));
+
+        // Assert that the second insert was skipped.
+        assertThat(actual).isFalse();
+    }
+
+    @Test
+    void deleteCustomerReturnsFalseWhenIdDoesNotExist() {
+        // Assert that deleting a missing id reports that nothing was deleted.
+        assertThat(underTest.deleteCustomer(-1L)).isFalse();
+    }
+
+    @Test
+    void deleteCustomerWithVersionOnlyDeletesThatVersion() {
+        // Add a customer and update it, so its version moves on to 1.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), 20, email);
+        underTest.insertCustomer(customer);
+        underTest.updateCustomer(new Customer(customer.getId(), null, 21, null));
+
+        // Assert that only the current version is deleted.
+        assertThat(underTest.deleteCustomer(customer.getId(), 0L)).isFalse();
+        assertThat(underTest.existsPersonById(customer.getId())).isTrue();
+        assertThat(underTest.deleteCustomer(customer.getId(), 1L)).isTrue();
+        assertThat(underTest.existsPersonById(customer.getId())).isFalse();
+    }
+
+    @Test
+    void insertCustomersSkipsExistingEmails() {
+        // Generate an existing customer and two new ones.
+        String existingEmail = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, existingEmail));
+
+        String newEmail = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        List<Customer> batch = List.of(
+                new Customer(FAKER.name().fullName(), 30, newEmail),
+                new Customer(FAKER.name().fullName(), 40, existingEmail)
+        );
+
+        // Insert the batch.
+        int[] actual = underTest.insertCustomers(batch);
+
+        // Assert that only the new customer was inserted.
+        assertThat(actual).containsExactly(1, 0);
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+    }
+
+    @Test
+    void insertCustomersInsertsTheFirstOfRowsSharingAnEmail() {
+        // Generate a batch that carries the same new email twice.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        List<Customer> batch = List.of(
+                new Customer(FAKER.name().fullName(), 30, email),
+                new Customer(FAKER.name().fullName(), 40, email)
+        );
+
+        // Insert the batch.
+        int[] actual = underTest.insertCustomers(batch);
+
+        // Assert that only the first row was inserted.
+        assertThat(actual).containsExactly(1, 0);
+    }
+
+    @Test
+    void concurrentBulkInsertsDoNotDeadlockOnTheStatsBuckets() throws Exception {
+        // More writers than stats stripes, so at least two of them share a stripe, and
+        // every writer hits the same age and domain buckets in its own order.
+        int writers = 17;
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+        dataSource.setUsername(postgreSQLContainer.getUsername());
+        dataSource.setPassword(postgreSQLContainer.getPassword());
+        dataSource.setMaximumPoolSize(writers);
+        CustomerJDBCDataAccessService dao = new CustomerJDBCDataAccessService(
+                new JdbcTemplate(dataSource), customerRowMapper);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (dataSource) {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                List<Customer> batch = new ArrayList<>();
+                for (int i = 0; i < 3000; i++) {
+                    batch.add(new Customer(FAKER.name().fullName(), 18 + i % 80,
+                            UUID.randomUUID() + "@bulk" + i % 50 + ".com"));
+                }
+                Collections.shuffle(batch, new Random(writer));
+                results.add(executor.submit(() -> dao.insertCustomers(batch)));
+            }
+
+            // Assert that every writer inserted all of its rows.
+            for (Future<int[]> result : results) {
+                assertThat(result.get(1, TimeUnit.MINUTES)).hasSize(3000).containsOnly(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Add a new customer to the database.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, email));
+
+        // Look up the stored email together with one that does not exist.
+        var actual = underTest.selectExistingEmails(List.of(email, "non-existent-email@email.com"));
+
+        // Assert that only the stored email is returned.
+        assertThat(actual).containsExactly(email);
     }
 
     @Test
@@ -144,12 +354,13 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 .findFirst()
                 .orElseThrow();
         // Delete customer using the given ID.
-        underTest.deleteCustomer(customerId);
+        boolean deleted = underTest.deleteCustomer(customerId);
 
         // Retrieve customer using the given ID.
         var actual = underTest.selectCustomerById(customerId);
 
         // Assert that the customer is not present.
+        assertThat(deleted).isTrue();
         assertThat(actual).isNotPresent();
     }
 
@@ -384,6 +595,66 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         });
     }
 
+    @Test
+    void updateCustomerBumpsVersionAndReturnsRow() {
+        // Add a new customer to the database.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, email));
+        Customer stored = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(email))
+                .findFirst()
+                .orElseThrow();
+
+        // Update the age guarded by the stored version.
+        Customer update = new Customer(stored.getId(), null, 21, null, stored.getVersion());
+        Optional<Customer> actual = underTest.updateCustomer(update);
+
+        // Assert that the new row comes back with the next version.
+        assertThat(actual).isPresent().hasValueSatisfying(c -> {
+            assertThat(c.getAge()).isEqualTo(21);
+            assertThat(c.getVersion()).isEqualTo(stored.getVersion() + 1);
+        });
+    }
+
+    @Test
+    void willNotUpdateWhenVersionIsStale() {
+        // Add a new customer to the database.
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, email));
+        Customer stored = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(email))
+                .findFirst()
+                .orElseThrow();
+
+        // Update with a version that is already outdated.
+        Customer update = new Customer(stored.getId(), null, 21, null, stored.getVersion() - 1);
+        Optional<Customer> actual = underTest.updateCustomer(update);
+
+        // Assert that nothing was updated.
+        assertThat(actual).isEmpty();
+        assertThat(underTest.selectCustomerById(stored.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getAge()).isEqualTo(20));
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailIsTaken() {
+        // Add two customers to the database.
+        String takenEmail = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        String email = FAKER.internet().safeEmailAddress() + "." + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, takenEmail));
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), 20, email));
+        long customerId = underTest.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // Assert that taking the other customer's email fails on the unique constraint.
+        Customer update = new Customer(customerId, null, null, takenEmail, null);
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicatedResourceException.class);
+    }
+
     @Test
     void existsPersonWithEmail() {
         // Generate fake customer data and create a new customer object.
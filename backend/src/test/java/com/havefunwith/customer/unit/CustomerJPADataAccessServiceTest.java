@@ -4,14 +4,28 @@ import com.github.javafaker.Faker;
 import com.havefunwith.customer.Customer;
 import com.havefunwith.customer.CustomerJPADataAccessService;
 import com.havefunwith.customer.CustomerRepository;
+import com.havefunwith.exception.DuplicatedResourceException;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jdbc.ReturningWork;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,6 +37,9 @@ class CustomerJPADataAccessServiceTest {
     @Mock
     private CustomerRepository customerRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private CustomerJPADataAccessService underTest;
 
@@ -56,6 +73,19 @@ class CustomerJPADataAccessServiceTest {
         TO DO COMMENTS
     */
     @Test
+    void selectCustomersAfter() {
+        long afterId = 10;
+        int limit = 5;
+
+        underTest.selectCustomersAfter(afterId, limit);
+
+        Mockito.verify(customerRepository)
+                .findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+    /*
+        TO DO COMMENTS
+    */
+    @Test
     void selectCustomerById() {
         long customerId = -1;
 
@@ -78,7 +108,82 @@ class CustomerJPADataAccessServiceTest {
         underTest.insertCustomer(customer);
 
         Mockito.verify(customerRepository)
-                .save(customer);
+                .saveAndFlush(customer);
+    }
+
+    @Test
+    void insertCustomerReturnsFalseOnlyWhenTheEmailIsTaken() {
+        // Given
+        Customer customer = new Customer("John Doe", 24, "john_doe@email.com");
+        Mockito.when(customerRepository.saveAndFlush(customer)).thenAnswer(invocation -> {
+            customer.setId(51L);
+            throw new DataIntegrityViolationException("duplicate",
+                    new ConstraintViolationException("duplicate", new SQLException(), "customer_email_unique"));
+        });
+
+        // When
+        boolean actual = underTest.insertCustomer(customer);
+
+        // Then
+        assertFalse(actual);
+        assertNull(customer.getId());
+    }
+
+    @Test
+    void insertCustomerRethrowsOtherViolations() {
+        // Given
+        Customer customer = new Customer("John Doe", 24, "john_doe@email.com");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), null));
+        Mockito.when(customerRepository.saveAndFlush(customer)).thenThrow(violation);
+
+        // Then
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class,
+                () -> underTest.insertCustomer(customer)));
+    }
+    /*
+        TO DO COMMENTS
+    */
+    @Test
+    void insertCustomersReportsEveryRow() throws Exception {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer("John Doe", 24, "john_doe@email.com"),
+                new Customer("Jane Doe", 31, "taken@email.com"));
+        Session session = Mockito.mock(Session.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(entityManager.unwrap(Session.class)).thenReturn(session);
+        Mockito.when(session.doReturningWork(Mockito.<ReturningWork<int[]>>any()))
+                .thenAnswer(invocation -> invocation.<ReturningWork<int[]>>getArgument(0).execute(connection));
+        ResultSet inserted = Mockito.mock(ResultSet.class);
+        Mockito.when(connection.prepareStatement(Mockito.contains("ON CONFLICT (email) DO NOTHING")))
+                .thenReturn(statement);
+        Mockito.when(statement.executeQuery()).thenReturn(inserted);
+        // Mock the database to return only the email that was not taken.
+        Mockito.when(inserted.next()).thenReturn(true, false);
+        Mockito.when(inserted.getString(1)).thenReturn("john_doe@email.com");
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        // all rows go in one statement
+        assertArrayEquals(new int[]{1, 0}, actual);
+        Mockito.verify(connection, Mockito.times(1)).prepareStatement(Mockito.anyString());
+        Mockito.verify(customerRepository, Mockito.never()).saveAll(Mockito.any());
+    }
+    /*
+        TO DO COMMENTS
+    */
+    @Test
+    void selectExistingEmails() {
+        List<String> emails = List.of("john_doe@email.com");
+
+        underTest.selectExistingEmails(emails);
+
+        Mockito.verify(customerRepository)
+                .findEmailsIn(emails);
     }
     /*
         TO DO COMMENTS
@@ -108,13 +213,33 @@ class CustomerJPADataAccessServiceTest {
         TO DO COMMENTS
     */
     @Test
+    void searchCustomers() {
+        underTest.searchCustomers("marlon", 20, 10);
+
+        Mockito.verify(customerRepository)
+                .searchByNameOrEmail("marlon", 20, 10);
+    }
+    /*
+        TO DO COMMENTS
+    */
+    @Test
     void deleteCustomer() {
         long customerId = 1;
 
         underTest.deleteCustomer(customerId);
 
         Mockito.verify(customerRepository)
-                .deleteById(customerId);
+                .deleteCustomerById(customerId);
+    }
+
+    @Test
+    void deleteCustomerWithVersion() {
+        long customerId = 1;
+
+        underTest.deleteCustomer(customerId, 3L);
+
+        Mockito.verify(customerRepository)
+                .deleteCustomerByIdAndVersion(customerId, 3L);
     }
     /*
         TO DO COMMENTS
@@ -122,14 +247,36 @@ class CustomerJPADataAccessServiceTest {
     @Test
     void updateCustomer() {
         Customer customer = new Customer(
+                1L,
                 "John Doe",
                 24,
-                "john_doe@email.com"
+                "john_doe@email.com",
+                3L
         );
 
         underTest.updateCustomer(customer);
 
-        Mockito.verify(customerRepository)
-                .save(customer);
+        // the persistence context is cleared first, so the returned row is the updated one
+        InOrder inOrder = Mockito.inOrder(entityManager, customerRepository);
+        inOrder.verify(entityManager).clear();
+        inOrder.verify(customerRepository)
+                .updateCustomer(1L, "John Doe", "john_doe@email.com", 24, 3L);
+    }
+
+    @Test
+    void updateCustomerReportsOnlyTakenEmailsAsDuplicates() {
+        // Given
+        Customer taken = new Customer(1L, "John Doe", 24, "taken@email.com", 3L);
+        Customer invalid = new Customer(2L, "John Doe", -1, "john_doe@email.com", 3L);
+        Mockito.when(customerRepository.updateCustomer(1L, "John Doe", "taken@email.com", 24, 3L))
+                .thenThrow(new DataIntegrityViolationException("duplicate",
+                        new ConstraintViolationException("duplicate", new SQLException(), "customer_email_unique")));
+        Mockito.when(customerRepository.updateCustomer(2L, "John Doe", "john_doe@email.com", -1, 3L))
+                .thenThrow(new DataIntegrityViolationException("check",
+                        new ConstraintViolationException("check", new SQLException(), "customer_age_check")));
+
+        // Then
+        assertThrows(DuplicatedResourceException.class, () -> underTest.updateCustomer(taken));
+        assertThrows(DataIntegrityViolationException.class, () -> underTest.updateCustomer(invalid));
     }
 }
\ No newline at end of file
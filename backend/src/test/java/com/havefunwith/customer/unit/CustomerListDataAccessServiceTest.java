@@ -0,0 +1,225 @@
+package com.havefunwith.customer.unit;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerFilter;
+import com.havefunwith.customer.CustomerListDataAccessService;
+import com.havefunwith.exception.DuplicatedResourceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private final CustomerListDataAccessService underTest = new CustomerListDataAccessService();
+
+    @Test
+    void insertCustomerAssignsIdAndIndexesEmail() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+
+        // When
+        boolean actual = underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(customer.getId()).isNotNull();
+        assertThat(underTest.existsPersonWithEmail("jane_doe@email.com")).isTrue();
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("jane_doe@email.com"));
+    }
+
+    @Test
+    void callersCannotMutateStoredCustomer() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+
+        // When
+        customer.setName("Changed");
+        underTest.selectCustomerById(customer.getId()).orElseThrow().setName("Changed");
+
+        // Then
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Jane Doe"));
+    }
+
+    @Test
+    void deleteCustomerRemovesOnlyThatCustomer() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+        int before = underTest.selectAllCustomers().size();
+
+        // When
+        boolean actual = underTest.deleteCustomer(customer.getId());
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(underTest.selectAllCustomers()).hasSize(before - 1);
+        assertThat(underTest.existsPersonById(customer.getId())).isFalse();
+        assertThat(underTest.existsPersonWithEmail("jane_doe@email.com")).isFalse();
+        assertThat(underTest.deleteCustomer(customer.getId())).isFalse();
+    }
+
+    @Test
+    void deleteCustomerWithVersionOnlyDeletesThatVersion() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+        Customer updated = underTest.updateCustomer(new Customer(customer.getId(), "Jane Roe", null, null)).orElseThrow();
+
+        // Then
+        assertThat(underTest.deleteCustomer(customer.getId(), updated.getVersion() - 1)).isFalse();
+        assertThat(underTest.existsPersonById(customer.getId())).isTrue();
+        assertThat(underTest.deleteCustomer(customer.getId(), updated.getVersion())).isTrue();
+        assertThat(underTest.existsPersonById(customer.getId())).isFalse();
+    }
+
+    @Test
+    void updateCustomerReplacesRowAndMovesEmail() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+        int before = underTest.selectAllCustomers().size();
+
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(
+                new Customer(customer.getId(), null, null, "jane@email.com", 0L));
+
+        // Then
+        assertThat(actual).hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(1L));
+        assertThat(underTest.selectAllCustomers()).hasSize(before);
+        assertThat(underTest.existsPersonWithEmail("jane_doe@email.com")).isFalse();
+        assertThat(underTest.existsPersonWithEmail("jane@email.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerRejectsStaleVersionAndNoOp() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(underTest.updateCustomer(new Customer(customer.getId(), "Jane", null, null, 5L))).isEmpty();
+        assertThat(underTest.updateCustomer(new Customer(customer.getId(), "Jane Doe", 30, null, null))).isEmpty();
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailIsTaken() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(
+                new Customer(customer.getId(), null, null, "john@email.com", null)))
+                .isInstanceOf(DuplicatedResourceException.class);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("jane_doe@email.com"));
+    }
+
+    @Test
+    void selectCustomersAfterAppliesTheFilter() {
+        // Given
+        Customer jane = new Customer("Jane Doe", 30, "jane_doe@corp.com");
+        Customer janet = new Customer("Janet Roe", 45, "janet@corp.com");
+        Customer jack = new Customer("Jack Poe", 33, "jack@corp.com");
+        underTest.insertCustomer(jane);
+        underTest.insertCustomer(janet);
+        underTest.insertCustomer(jack);
+        CustomerFilter filter = new CustomerFilter(25, 40, "CORP.com", "ja");
+
+        // When
+        List<Customer> firstPage = underTest.selectCustomersAfter(filter, 0L, 1);
+        List<Customer> secondPage = underTest.selectCustomersAfter(filter, firstPage.get(0).getId(), 10);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(jane.getId());
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(jack.getId());
+    }
+
+    @Test
+    void searchCustomersRanksSimilarNamesAndEmailsFirst() {
+        // Given
+        Customer exact = new Customer("Marlon Brando", 80, "brando@email.com");
+        Customer typo = new Customer("Marlen Smith", 30, "smith@email.com");
+        Customer byEmail = new Customer("Someone Else", 40, "marlon.b@email.com");
+        underTest.insertCustomer(exact);
+        underTest.insertCustomer(typo);
+        underTest.insertCustomer(byEmail);
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("marlon", 0, 10);
+
+        // Then
+        // Both full matches tie and are ordered by id, the misspelling shares too few trigrams.
+        assertThat(actual).extracting(Customer::getId)
+                .containsExactly(exact.getId(), byEmail.getId());
+        assertThat(underTest.searchCustomers("marlon", 1, 10)).extracting(Customer::getId)
+                .containsExactly(byEmail.getId());
+        assertThat(underTest.searchCustomers("marlon", 0, 1)).extracting(Customer::getId)
+                .containsExactly(exact.getId());
+    }
+
+    @Test
+    void searchCustomersFollowsUpdatesAndDeletes() {
+        // Given
+        Customer customer = new Customer("Jane Doe", 30, "jane_doe@email.com");
+        underTest.insertCustomer(customer);
+
+        // When
+        underTest.updateCustomer(new Customer(customer.getId(), "Janet Dorsey", null, "janet@email.com", null));
+
+        // Then
+        assertThat(underTest.searchCustomers("doe", 0, 10)).isEmpty();
+        assertThat(underTest.searchCustomers("dorsey", 0, 10))
+                .singleElement()
+                .satisfies(c -> assertThat(c.getEmail()).isEqualTo("janet@email.com"));
+
+        underTest.deleteCustomer(customer.getId());
+        assertThat(underTest.searchCustomers("dorsey", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void concurrentRegistrationsWithSameEmailInsertOnce() throws Exception {
+        // Given
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        // Every thread races to register the same email.
+        try {
+            List<Future<Boolean>> results = IntStream.range(0, threads)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return underTest.insertCustomer(new Customer("Racer " + i, 30, "racer@email.com"));
+                    }))
+                    .toList();
+            start.countDown();
+
+            // Then
+            long inserted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    inserted++;
+                }
+            }
+            assertThat(inserted).isEqualTo(1);
+            assertThat(underTest.selectAllCustomers())
+                    .filteredOn(c -> c.getEmail().equals("racer@email.com"))
+                    .hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.havefunwith.customer.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerPage;
+import com.havefunwith.customer.CustomerPageResponse;
+import com.havefunwith.customer.CustomerResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerResponseTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void writesTheSameJsonAsTheEntity() throws Exception {
+        // Given
+        Customer customer = new Customer(7L, "Jane \"JD\" Doe", 30, "jane_doe@email.com", 3L);
+        Customer unsaved = new Customer("John Doe", null, "john_doe@email.com");
+
+        // When
+        String actual = objectMapper.writeValueAsString(CustomerResponse.from(customer));
+        String actualUnsaved = objectMapper.writeValueAsString(CustomerResponse.from(unsaved));
+
+        // Then
+        assertThat(actual).isEqualTo(objectMapper.writeValueAsString(customer));
+        assertThat(actualUnsaved).isEqualTo(objectMapper.writeValueAsString(unsaved));
+    }
+
+    @Test
+    void readsBackAsTheEntity() throws Exception {
+        // Given
+        Customer customer = new Customer(7L, "Jane Doe", 30, "jane_doe@email.com", 3L);
+        CustomerPage page = new CustomerPage(List.of(customer), "Nw");
+
+        // When
+        String json = objectMapper.writeValueAsString(CustomerPageResponse.from(page));
+        CustomerPage actual = objectMapper.readValue(json, CustomerPage.class);
+
+        // Then
+        assertThat(actual.nextCursor()).isEqualTo("Nw");
+        assertThat(actual.customers()).singleElement()
+                .usingRecursiveComparison()
+                .isEqualTo(customer);
+    }
+
+}
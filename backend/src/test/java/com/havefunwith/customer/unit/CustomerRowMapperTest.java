@@ -27,11 +27,13 @@ class CustomerRowMapperTest {
         Mockito.when(resultSet.getString("name")).thenReturn("John Doe");
         Mockito.when(resultSet.getInt("age")).thenReturn(31);
         Mockito.when(resultSet.getString("email")).thenReturn("john_doe@email.com");
+        Mockito.when(resultSet.getLong("version")).thenReturn(7L);
 
         // When
         Customer actual = underTest.mapRow(resultSet, 1);
 
         // Then
         assertThat(actual).isEqualTo(expected);
+        assertThat(actual.getVersion()).isEqualTo(7L);
     }
 }
\ No newline at end of file
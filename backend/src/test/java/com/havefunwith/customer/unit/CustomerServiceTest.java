@@ -2,17 +2,24 @@ package com.havefunwith.customer.unit;
 
 import com.havefunwith.customer.*;
 import com.havefunwith.exception.DuplicatedResourceException;
-import com.havefunwith.exception.ResourceNotChangedException;
+import com.havefunwith.exception.PreconditionFailedException;
+import com.havefunwith.exception.RequestValidationException;
 import com.havefunwith.exception.ResourceNotFoundException;
+import com.havefunwith.exception.ResourceVersionConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -29,6 +36,14 @@ class CustomerServiceTest {
     @Mock
     private CustomerDao customerDao;
 
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+
+    // Real cache, so the service is tested with read-through and invalidation in place.
+    @Spy
+    private CustomerCache customerCache =
+            new CustomerCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
     // Automatically inject mocks objects into the underTest object.
     @InjectMocks
     private CustomerService underTest;
@@ -55,6 +70,149 @@ class CustomerServiceTest {
                 .selectAllCustomers();
     }
 
+    @Test
+    void canGetFirstCustomerPage() {
+        // Given
+        Customer first = new Customer(1L, name, age, email);
+        Customer second = new Customer(2L, "Jane Doe", 30, "jane_doe@email.com");
+
+        // Mock the DAO to return one row more than the requested page size.
+        Mockito.when(customerDao.selectCustomersAfter(0L, 2))
+                .thenReturn(List.of(first, second));
+
+        // When
+        CustomerPage actual = underTest.getCustomers(null, 1);
+
+        // Then
+        // Only the requested rows are returned and the cursor points past the last one.
+        assertThat(actual.customers()).containsExactly(first);
+        assertThat(actual.nextCursor()).isEqualTo(CustomerCursor.encode(1L));
+    }
+
+    @Test
+    void canGetLastCustomerPage() {
+        // Given
+        Customer last = new Customer(5L, name, age, email);
+        String cursor = CustomerCursor.encode(4L);
+
+        // Mock the DAO to return fewer rows than requested.
+        Mockito.when(customerDao.selectCustomersAfter(4L, 11))
+                .thenReturn(List.of(last));
+
+        // When
+        CustomerPage actual = underTest.getCustomers(cursor, 10);
+
+        // Then
+        // No cursor is returned when there are no more pages.
+        assertThat(actual.customers()).containsExactly(last);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenPageSizeIsOutOfRange() {
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers(null, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Page size must be between 1 and 1000");
+
+        // Verify that the DAO was never queried.
+        Mockito.verify(customerDao, never()).selectCustomersAfter(any(), Mockito.anyInt());
+    }
+
+    @Test
+    void willThrowWhenCursorIsInvalid() {
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers("not-a-cursor", 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Cursor [not-a-cursor] is not valid");
+    }
+
+    @Test
+    void canGetFilteredCustomerPage() {
+        // Given
+        Customer customer = new Customer(3L, name, age, email);
+        CustomerFilter filter = new CustomerFilter(20, 30, null, "jo");
+
+        // Mock the DAO to return the only matching row.
+        Mockito.when(customerDao.selectCustomersAfter(filter, 0L, 11))
+                .thenReturn(List.of(customer));
+
+        // When
+        CustomerPage actual = underTest.getCustomers(null, 10, filter);
+
+        // Then
+        // The filtered query is used instead of the plain keyset page.
+        assertThat(actual.customers()).containsExactly(customer);
+        assertThat(actual.nextCursor()).isNull();
+        Mockito.verify(customerDao, never()).selectCustomersAfter(any(), Mockito.anyInt());
+    }
+
+    @Test
+    void willThrowWhenFilterIsNotValid() {
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers(null, 10, new CustomerFilter(40, 30, null, null)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Age range [40, 30] is not valid");
+        assertThatThrownBy(() -> underTest.getCustomers(null, 10, new CustomerFilter(null, null, "a@b.com", null)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Email domain [a@b.com] is not valid");
+        assertThatThrownBy(() -> underTest.getCustomers(null, 10, new CustomerFilter(null, null, null, " ")))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void canSearchCustomers() {
+        // Given
+        Customer first = new Customer(1L, name, age, email);
+        Customer second = new Customer(2L, "Jane Doe", 30, "jane_doe@email.com");
+
+        // Mock the DAO to return one match more than the requested page size.
+        Mockito.when(customerDao.searchCustomers("doe", 0, 2))
+                .thenReturn(List.of(first, second));
+
+        // When
+        CustomerPage actual = underTest.searchCustomers("  doe ", null, 1);
+
+        // Then
+        // The query is trimmed and the cursor holds the offset of the next page.
+        assertThat(actual.customers()).containsExactly(first);
+        assertThat(actual.nextCursor()).isEqualTo(CustomerCursor.encode(1L));
+    }
+
+    @Test
+    void searchStopsAtTheLastRankedPage() {
+        // Given
+        Customer last = new Customer(5L, name, age, email);
+
+        // Mock the DAO to return a full page that ends at the result limit.
+        Mockito.when(customerDao.searchCustomers("doe", 990, 11))
+                .thenReturn(List.of(last, last, last, last, last, last, last, last, last, last, last));
+
+        // When
+        CustomerPage actual = underTest.searchCustomers("doe", CustomerCursor.encode(990L), 20);
+
+        // Then
+        // Only ten rows are left before the limit, and no cursor points past it.
+        assertThat(actual.customers()).hasSize(10);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenSearchIsTooShortOrTooDeep() {
+        // Then
+        assertThatThrownBy(() -> underTest.searchCustomers(" do ", null, 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Search query must be between 3 and 100 characters long");
+        assertThatThrownBy(() -> underTest.searchCustomers("doe", null, 101))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Page size must be between 1 and 100");
+        assertThatThrownBy(() -> underTest.searchCustomers("doe", CustomerCursor.encode(1000L), 10))
+                .isInstanceOf(RequestValidationException.class);
+
+        // Verify that the DAO was never queried.
+        Mockito.verify(customerDao, never()).searchCustomers(any(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
     @Test
     void canGetCustomer() {
         // Given
@@ -63,7 +221,7 @@ class CustomerServiceTest {
 
         // When
         // Mock the DAO's response to return test customer for the given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
+        Mockito.when(customerDao.selectCustomerByIdFromPrimary(customerId))
                 .thenReturn(Optional.of(customer));
 
         // Then
@@ -72,6 +230,62 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void getCustomerIsServedFromCacheOnSecondCall() {
+        // Given
+        long customerId = 3;
+        Mockito.when(customerDao.selectCustomerByIdFromPrimary(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, email, 0L)));
+
+        // When
+        underTest.getCustomer(customerId);
+        var actual = underTest.getCustomer(customerId);
+
+        // Then
+        // Verify that the database was only hit once.
+        assertThat(actual.getEmail()).isEqualTo(email);
+        Mockito.verify(customerDao, Mockito.times(1)).selectCustomerByIdFromPrimary(customerId);
+    }
+
+    @Test
+    void getCustomerAfterAnUpdateCachesThePrimarysRow() {
+        // Given
+        long customerId = 3;
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, "Johnny", age, email, 1L)));
+        // a replica that has not replayed the update yet
+        Mockito.lenient().when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, email, 0L)));
+        Mockito.when(customerDao.selectCustomerByIdFromPrimary(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, "Johnny", age, email, 1L)));
+
+        // When
+        underTest.updateCustomer(customerId, new CustomerUpdateRequest("Johnny", null, null));
+        underTest.getCustomer(customerId);
+        var actual = underTest.getCustomer(customerId);
+
+        // Then
+        assertThat(actual.getName()).isEqualTo("Johnny");
+        assertThat(actual.getVersion()).isEqualTo(1L);
+        Mockito.verify(customerDao, never()).selectCustomerById(customerId);
+    }
+
+    @Test
+    void updateAndDeleteInvalidateCachedCustomer() {
+        // Given
+        long customerId = 3;
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, "Johnny", age, email, 1L)));
+        Mockito.when(customerDao.deleteCustomer(customerId)).thenReturn(true);
+
+        // When
+        underTest.updateCustomer(customerId, new CustomerUpdateRequest("Johnny", null, null));
+        underTest.deleteCustomer(customerId);
+
+        // Then
+        Mockito.verify(customerCache, Mockito.times(2)).invalidate(customerId);
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnEmptyOptional() {
         // Given
@@ -79,7 +293,7 @@ class CustomerServiceTest {
 
         // When
         // Mock the DAO's response to return an empty Optional for the given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
+        Mockito.when(customerDao.selectCustomerByIdFromPrimary(customerId))
                 .thenReturn(Optional.empty());
 
         // Then
@@ -99,9 +313,8 @@ class CustomerServiceTest {
                 new CustomerRegistrationRequest(name, email, age);
 
         // When
-        // Mock the DAO layer to return false when checking if email already exists
-        // in the system.
-        Mockito.when(customerDao.existsPersonWithEmail(email)).thenReturn(false);
+        // Mock the DAO layer to report that the customer was inserted.
+        Mockito.when(customerDao.insertCustomer(any())).thenReturn(true);
 
         // Invoke the method of the service under test with the provided customer request object.
         underTest.addCustomer(customerRequest);
@@ -121,6 +334,9 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(customerRequest.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(customerRequest.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(customerRequest.age());
+
+        // Verify that no pre-check query was made.
+        Mockito.verify(customerDao, never()).existsPersonWithEmail(any());
     }
 
     @Test
@@ -131,9 +347,9 @@ class CustomerServiceTest {
                 new CustomerRegistrationRequest(name, email, age);
 
         // When
-        // Mock the DAO layer to return true when checking if email exists
-        // in the system.
-        Mockito.when(customerDao.existsPersonWithEmail(email)).thenReturn(true);
+        // Mock the DAO layer to report that the insert was skipped because
+        // the email already exists in the system.
+        Mockito.when(customerDao.insertCustomer(any())).thenReturn(false);
 
         // Then
         // When given customer request object is passed to service under test method.
@@ -142,9 +358,6 @@ class CustomerServiceTest {
         assertThatThrownBy(() -> underTest.addCustomer(customerRequest))
                 .isInstanceOf(DuplicatedResourceException.class)
                 .hasMessage("Customer with email [%s] already exist.".formatted(email));
-
-        // Verify that the DAO's method was never called.
-        Mockito.verify(customerDao, never()).insertCustomer(any());
     }
 
     @Test
@@ -153,8 +366,8 @@ class CustomerServiceTest {
         long customerId = 1;
 
         // When
-        // Mock DAO layer to return true if customer with given ID exists.
-        Mockito.when(customerDao.existsPersonById(customerId))
+        // Mock DAO layer to report that the customer with given ID was deleted.
+        Mockito.when(customerDao.deleteCustomer(customerId))
                 .thenReturn(true);
 
         // Invoke the method of the service under test with the provided
@@ -165,6 +378,52 @@ class CustomerServiceTest {
         // Verify that the DAO's method was called with the given customerId
         Mockito.verify(customerDao)
                 .deleteCustomer(customerId);
+        Mockito.verify(customerDao, never()).existsPersonById(any());
+    }
+
+    @Test
+    void canDeleteCustomerIfMatchAcceptsItsVersion() {
+        // Given
+        long customerId = 1;
+        Mockito.when(customerDao.deleteCustomer(customerId, 5L))
+                .thenReturn(true);
+
+        // When
+        underTest.deleteCustomer(customerId, CustomerIfMatch.of(Set.of(5L)));
+
+        // Then
+        Mockito.verify(customerDao).deleteCustomer(customerId, 5L);
+        Mockito.verify(customerDao, never()).deleteCustomer(customerId);
+    }
+
+    @Test
+    void deleteWillThrowPreconditionFailedWhenIfMatchIsStale() {
+        // Given
+        long customerId = 1;
+        Mockito.when(customerDao.deleteCustomer(customerId, 5L))
+                .thenReturn(false);
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, email, 6L)));
+
+        // Then
+        assertThatThrownBy(() -> underTest.deleteCustomer(customerId, CustomerIfMatch.of(Set.of(5L))))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void deleteWithIfMatchAnyWillThrowPreconditionFailedWhenCustomerIsMissing() {
+        // Given
+        long customerId = 1;
+        Mockito.when(customerDao.deleteCustomer(customerId))
+                .thenReturn(false);
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.empty());
+
+        // Then
+        // If-Match: * only holds while the customer exists
+        assertThatThrownBy(() -> underTest.deleteCustomer(customerId, CustomerIfMatch.ANY))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [1] does not exist, which the If-Match header does not accept.");
     }
 
     @Test
@@ -173,9 +432,9 @@ class CustomerServiceTest {
         long customerId = 10;
 
         // When
-        // Mock DAO layer to return false if customer with given ID
-        // does not exist.
-        Mockito.when(customerDao.existsPersonById(customerId))
+        // Mock DAO layer to report that nothing was deleted because the
+        // customer with given ID does not exist.
+        Mockito.when(customerDao.deleteCustomer(customerId))
                 .thenReturn(false);
 
 
@@ -186,9 +445,6 @@ class CustomerServiceTest {
         assertThatThrownBy(() -> underTest.deleteCustomer(customerId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id [%s] was not found.".formatted(customerId));
-
-        // Verify that the DAO method was never called.
-        Mockito.verify(customerDao, never()).deleteCustomer(any());
     }
 
     @Test
@@ -207,23 +463,15 @@ class CustomerServiceTest {
                 newAge
         );
 
-        // Create a mock customer object for the test.
-        Customer customer = new Customer(customerId, name, age, email);
-
-        // Mock DAO layer to return test customer when fetching with
-        // the given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
-                .thenReturn(Optional.of(customer));
-
-        // Mock DAO layer to return false when person with the given ID
-        // does not exist.
-        Mockito.when(customerDao.existsPersonWithEmail(newEmail))
-                .thenReturn(false);
+        // Mock DAO layer to return the updated row from the single UPDATE statement.
+        Customer updated = new Customer(customerId, newName, newAge, newEmail, 1L);
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(updated));
 
         // When
         // Invoke the method of the service under test with the given ID and
         // update request object.
-        underTest.updateCustomer(customerId, updateRequest);
+        Customer actual = underTest.updateCustomer(customerId, updateRequest);
 
         // Then
         // Use ArgumentCaptor to capture the customer object the DAO's method
@@ -237,10 +485,15 @@ class CustomerServiceTest {
         // Retrieve the captured customer object argument from ArgumentCaptor
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        // Assert that all attributes were updated.
+        // Assert that all attributes were sent to the DAO in one call and that no
+        // pre-check queries were made.
+        assertThat(capturedCustomer.getId()).isEqualTo(customerId);
         assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(updateRequest.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(updateRequest.age());
+        assertThat(actual).isEqualTo(updated);
+        Mockito.verify(customerDao, never()).selectCustomerById(any());
+        Mockito.verify(customerDao, never()).existsPersonWithEmail(any());
     }
 
     @Test
@@ -255,13 +508,9 @@ class CustomerServiceTest {
                 newName, null, null
         );
 
-        // Create a mock customer object for the test.
-        Customer customer = new Customer(customerId, name, age, email);
-
-        // Mock the DAO layer to return test customer when fetching
-        // with the given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
-                .thenReturn(Optional.of(customer));
+        // Mock DAO layer to return the updated row.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, newName, age, email, 1L)));
 
         // When
         // Invoke method of the service under test with provided customer ID
@@ -280,10 +529,10 @@ class CustomerServiceTest {
         // Retrieve the captured customer object from the ArgumentCaptor.
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        // Assert that only the name has been updated, and other attributes remain unchanged.
+        // Assert that only the name is sent, so only that column is updated.
         assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(email);
-        assertThat(capturedCustomer.getAge()).isEqualTo(age);
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
     }
 
     @Test
@@ -298,18 +547,9 @@ class CustomerServiceTest {
                 null, newEmail, null
         );
 
-        // Create a mock customer object for the test.
-        Customer customer = new Customer(name, age, email);
-
-        // Mock DAO layer method to return a test customer when fetching
-        // with the given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
-                .thenReturn(Optional.of(customer));
-
-        // Mock DAO layer method to return false if person with the given
-        // email does not exist.
-        Mockito.when(customerDao.existsPersonWithEmail(newEmail))
-                .thenReturn(false);
+        // Mock DAO layer to return the updated row.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, newEmail, 1L)));
 
         //  When
         // Invoke the service under test with the provided update request
@@ -328,11 +568,11 @@ class CustomerServiceTest {
         // Retrieve the captured customer argument from ArgumentCaptor.
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        // Assert that only the email has been updated, while other
-        // attributes remain the same.
-        assertThat(capturedCustomer.getName()).isEqualTo(name);
+        // Assert that only the email is sent and uniqueness is left to the database.
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(updateRequest.email());
-        assertThat(capturedCustomer.getAge()).isEqualTo(age);
+        assertThat(capturedCustomer.getAge()).isNull();
+        Mockito.verify(customerDao, never()).existsPersonWithEmail(any());
     }
 
     @Test
@@ -347,13 +587,9 @@ class CustomerServiceTest {
                 null, null, newAge
         );
 
-        // Create a mock customer object for the test
-        Customer customer = new Customer(name, age, email);
-
-        // Mock DAO layer method to return a test customer when fetching
-        // with given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
-                .thenReturn(Optional.of(customer));
+        // Mock DAO layer to return the updated row.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, name, newAge, email, 1L)));
 
         //  When
         // Invoke service under test with provided update request
@@ -372,15 +608,36 @@ class CustomerServiceTest {
         // Retrieve the captured customer argument from ArgumentCaptor.
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        // Assert that only the age has been updated, while the other attributes
-        // remain the same.
-        assertThat(capturedCustomer.getName()).isEqualTo(name);
-        assertThat(capturedCustomer.getEmail()).isEqualTo(email);
+        // Assert that only the age is sent.
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(updateRequest.age());
     }
 
     @Test
-    void updateWillThrowResourceNotChangeException() {
+    void willPassExpectedVersionToUpdate() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(
+                "Johnny", null, null, 3L
+        );
+
+        // Mock DAO layer to return the updated row.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, "Johnny", age, email, 4L)));
+
+        //  When
+        underTest.updateCustomer(customerId, updateRequest);
+
+        //  Then
+        // Assert that the version from the request guards the update.
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        Mockito.verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void updateReturnsCurrentCustomerWhenNothingChanged() {
         //  Given
         // Define test data.
         long customerId = 10;
@@ -389,20 +646,127 @@ class CustomerServiceTest {
         CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(null, null, null);
 
         // Create mock customer object for the test.
-        Customer customer = new Customer(name, age, email);
+        Customer customer = new Customer(customerId, name, age, email, 0L);
 
-        // Mock DAO layer to return a test customer when fetching
-        // with the given ID.
+        // Mock DAO layer to report that no row changed, and to return the
+        // unchanged test customer when fetching with the given ID.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.empty());
         Mockito.when(customerDao.selectCustomerById(customerId))
                 .thenReturn(Optional.of(customer));
 
+        //  When
+        Customer actual = underTest.updateCustomer(customerId, updateRequest);
+
+        //  Then
+        // A no-op update is not an error, the customer comes back as it is.
+        assertThat(actual).isEqualTo(customer);
+    }
+
+    @Test
+    void updateWithIfMatchIsConditionalOnItsVersion() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null);
+        Customer updated = new Customer(customerId, "Johnny", age, email, 4L);
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(updated));
+
+        //  When
+        underTest.updateCustomer(customerId, updateRequest, CustomerIfMatch.of(Set.of(3L)));
+
+        //  Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        Mockito.verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void updateWillThrowPreconditionFailedWhenIfMatchIsStale() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null);
+
+        // Mock DAO layer to report that no row changed because the version moved on.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.empty());
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, email, 2L)));
+
+        //  Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customerId, updateRequest, CustomerIfMatch.of(Set.of(1L))))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [10] has version [2], which the If-Match header does not accept.");
+    }
+
+    @Test
+    void updateWithIfMatchAnyIsUnconditional() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null);
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.of(new Customer(customerId, "Johnny", age, email, 4L)));
+
+        //  When
+        underTest.updateCustomer(customerId, updateRequest, CustomerIfMatch.ANY);
+
+        //  Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        Mockito.verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getVersion()).isNull();
+        Mockito.verify(customerDao, never()).selectCustomerById(any());
+    }
+
+    @Test
+    void updateWithIfMatchAnyWillThrowPreconditionFailedWhenCustomerIsMissing() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null);
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.empty());
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.empty());
+
+        //  Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customerId, updateRequest, CustomerIfMatch.ANY))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void updateWillThrowResourceNotFoundException() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null);
+
+        // Mock DAO layer to report that no row changed because it does not exist.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.empty());
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.empty());
+
+        //  Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customerId, updateRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [%s] does not exist".formatted(customerId));
+    }
+
+    @Test
+    void updateWillThrowResourceVersionConflictException() {
+        //  Given
+        long customerId = 10;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Johnny", null, null, 1L);
+
+        // Mock DAO layer to report that no row changed because another update
+        // already moved the version on.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenReturn(Optional.empty());
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(new Customer(customerId, name, age, email, 2L)));
+
         //  Then
-        // When given ID and update request object are passed to service under test
-        // method. Assert that when attributes from the update request are null or
-        // unchanged throws the expected exception with the correct message.
         assertThatThrownBy(() -> underTest.updateCustomer(customerId, updateRequest))
-                .isInstanceOf(ResourceNotChangedException.class)
-                .hasMessage("No data changes found");
+                .isInstanceOf(ResourceVersionConflictException.class)
+                .hasMessage("Customer with id [10] has version [2], not [1].");
     }
 
     @Test
@@ -418,18 +782,10 @@ class CustomerServiceTest {
                 null, existingEmail, null
         );
 
-        // Create mock customer object for test.
-        Customer customer = new Customer(name, age, email);
-
-        // Mock DAO layer method to return a customer test when fetching
-        // with given ID.
-        Mockito.when(customerDao.selectCustomerById(customerId))
-                .thenReturn(Optional.of(customer));
-
-        // Mock DAO layer method to return false when person with the given
-        // email exists.
-        Mockito.when(customerDao.existsPersonWithEmail(existingEmail))
-                .thenReturn(true);
+        // Mock DAO layer to fail on the unique email constraint.
+        Mockito.when(customerDao.updateCustomer(any()))
+                .thenThrow(new DuplicatedResourceException(
+                        "Customer with email [%s] already exist.".formatted(existingEmail)));
 
         //  Then
         // When given ID and update request object are passed to service under test
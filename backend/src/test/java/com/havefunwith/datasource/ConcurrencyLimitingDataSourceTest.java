@@ -0,0 +1,97 @@
+package com.havefunwith.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitingDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void closingConnectionReturnsPermitOnce() throws SQLException {
+        // Given
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        ConcurrencyLimitingDataSource underTest =
+                new ConcurrencyLimitingDataSource(dataSource, 2, Duration.ofMillis(10), meterRegistry);
+
+        // When
+        Connection actual = underTest.getConnection();
+
+        // Then
+        assertThat(underTest.availablePermits()).isEqualTo(1);
+        actual.close();
+        actual.close();
+        assertThat(underTest.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void waitsNoLongerThanTimeoutWhenAllPermitsAreTaken() throws SQLException {
+        // Given
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        ConcurrencyLimitingDataSource underTest =
+                new ConcurrencyLimitingDataSource(dataSource, 1, Duration.ofMillis(10), meterRegistry);
+        underTest.getConnection();
+
+        // Then
+        assertThatThrownBy(underTest::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(meterRegistry.get("datasource.permits.wait").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("datasource.permits.wait").timer().max(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void failedConnectionReturnsPermit() throws SQLException {
+        // Given
+        Mockito.when(dataSource.getConnection()).thenThrow(new SQLException("pool is down"));
+        ConcurrencyLimitingDataSource underTest =
+                new ConcurrencyLimitingDataSource(dataSource, 1, Duration.ofMillis(10), meterRegistry);
+
+        // Then
+        assertThatThrownBy(underTest::getConnection).hasMessage("pool is down");
+        assertThat(underTest.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void loweredLimitTakesPermitsAwayAsConnectionsAreReturned() throws SQLException {
+        // Given
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        ConcurrencyLimitingDataSource underTest =
+                new ConcurrencyLimitingDataSource(dataSource, 2, Duration.ofMillis(10), meterRegistry);
+        Connection first = underTest.getConnection();
+        Connection second = underTest.getConnection();
+
+        // When
+        underTest.setMaxConcurrency(1);
+        first.close();
+
+        // Then
+        assertThat(underTest.availablePermits()).isZero();
+        second.close();
+        assertThat(underTest.availablePermits()).isEqualTo(1);
+        underTest.setMaxConcurrency(3);
+        assertThat(underTest.availablePermits()).isEqualTo(3);
+        assertThat(meterRegistry.get("datasource.permits.limit").gauge().value()).isEqualTo(3);
+    }
+}
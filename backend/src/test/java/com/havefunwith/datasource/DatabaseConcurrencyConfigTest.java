@@ -0,0 +1,32 @@
+package com.havefunwith.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseConcurrencyConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(DatabaseConcurrencyConfig.class);
+
+    @Test
+    void failsStartupWithoutVirtualThreadBuild() {
+        // Given the Java 17 build, which has no VirtualThreadConfig
+        contextRunner.withPropertyValues("customer.virtual-threads.enabled=true")
+                // Then
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure()
+                        .rootCause()
+                        .hasMessageContaining("virtual-threads Maven profile"));
+    }
+
+    @Test
+    void staysOffWithoutTheFlag() {
+        // Then
+        contextRunner.run(context -> assertThat(context)
+                .hasNotFailed()
+                .doesNotHaveBean(DatabaseConcurrencyConfig.class));
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.havefunwith.datasource;
+
+import com.havefunwith.datasource.PoolSizingPolicy.Decision;
+import com.havefunwith.datasource.PoolSizingPolicy.Sample;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PoolSizingPolicyTest {
+
+    // sizes 2 to 10 in steps of 2, waits over 5 ms are contention, grows must add 5% throughput
+    private final PoolSizingPolicy underTest = new PoolSizingPolicy(2, 10, 2, 5, 0.05, 0.5, 2);
+
+    @Test
+    void growsWhileCallersWaitForConnections() {
+        // When
+        Decision decision = underTest.decide(new Sample(4, 400, 20, 10, 3));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.GROW);
+        assertThat(underTest.sizeAfter(decision, 4)).isEqualTo(6);
+        assertThat(underTest.sizeAfter(decision, 10)).isEqualTo(10);
+    }
+
+    @Test
+    void backsOffAndHoldsWhenGrowingNoLongerAddsThroughput() {
+        // Given
+        underTest.decide(new Sample(4, 400, 20, 10, 3));
+
+        // When
+        Decision decision = underTest.decide(new Sample(6, 405, 20, 14, 3));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.BACK_OFF);
+        assertThat(underTest.sizeAfter(decision, 6)).isEqualTo(4);
+        assertThat(underTest.decide(new Sample(4, 400, 20, 10, 3))).isEqualTo(Decision.HOLD);
+        assertThat(underTest.decide(new Sample(4, 400, 20, 10, 3))).isEqualTo(Decision.HOLD);
+        assertThat(underTest.decide(new Sample(4, 400, 20, 10, 3))).isEqualTo(Decision.GROW);
+    }
+
+    @Test
+    void keepsGrowingWhileThroughputFollows() {
+        // Given
+        underTest.decide(new Sample(4, 400, 20, 10, 3));
+
+        // When
+        Decision decision = underTest.decide(new Sample(6, 580, 20, 10, 1));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.GROW);
+    }
+
+    @Test
+    void shrinksWhenMostConnectionsAreIdle() {
+        // When
+        // 100 connections a second held 10 ms each keep one of the eight busy
+        Decision decision = underTest.decide(new Sample(8, 100, 0.1, 10, 0));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.SHRINK);
+        assertThat(underTest.sizeAfter(decision, 8)).isEqualTo(6);
+        assertThat(underTest.decide(new Sample(2, 0, 0, 0, 0))).isEqualTo(Decision.HOLD);
+    }
+
+    @Test
+    void holdsAWellUsedPoolWithoutContention() {
+        // When
+        Decision decision = underTest.decide(new Sample(8, 600, 1, 10, 0));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.HOLD);
+    }
+
+    @Test
+    void doesNotGrowWhenWaitsComeFromAMostlyIdlePool() {
+        // When
+        // one of ten connections busy, the waits are for connections being opened
+        Decision decision = underTest.decide(new Sample(10, 50, 20, 20, 0));
+
+        // Then
+        assertThat(decision).isEqualTo(Decision.HOLD);
+    }
+}
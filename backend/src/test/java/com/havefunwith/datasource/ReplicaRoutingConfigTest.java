@@ -0,0 +1,45 @@
+package com.havefunwith.datasource;
+
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerListDataAccessService;
+import com.havefunwith.metrics.RepositoryMetricsConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingConfigTest {
+
+    // with Boot's conversion service, for the Duration and DataSize properties
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(ReplicaRoutingConfig.class, RepositoryMetricsConfig.class)
+            .withBean(SimpleMeterRegistry.class)
+            .withBean(DataSourceProperties.class)
+            .withBean("list", CustomerListDataAccessService.class)
+            .withPropertyValues("customer.replicas.enabled=true");
+
+    @Test
+    void routedRepositoriesAreStillMetered() {
+        contextRunner.run(context -> {
+            // Given
+            CustomerDao customerDao = context.getBean("list", CustomerDao.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            // When
+            customerDao.selectAllCustomers();
+
+            // Then
+            assertThat(context).hasNotFailed();
+            assertThat(meterRegistry.get("repository.calls")
+                    .tags("repository", "list", "method", "selectAllCustomers")
+                    .timer().count()).isEqualTo(1);
+        });
+    }
+
+}
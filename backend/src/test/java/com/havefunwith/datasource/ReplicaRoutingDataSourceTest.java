@@ -0,0 +1,249 @@
+package com.havefunwith.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    interface Dao {
+
+        @ReadOnlyQuery
+        Connection read() throws SQLException;
+
+        Connection write() throws SQLException;
+
+        @PrimaryQuery
+        Connection load() throws SQLException;
+
+        boolean delete() throws SQLException;
+
+    }
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replicaDataSource;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReplicaSet.Replica replica;
+    private ReadYourWrites readYourWrites;
+    private Dao dao;
+
+    @BeforeEach
+    void setUp() {
+        replica = new ReplicaSet.Replica("replica-0", replicaDataSource, replicaDataSource);
+        ReplicaSet replicaSet = new ReplicaSet(List.of(replica), 1024, Duration.ofSeconds(1), meterRegistry);
+        readYourWrites = new ReadYourWrites(
+                replicaSet, Duration.ofSeconds(5), Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        ReplicaRoutingDataSource underTest =
+                new ReplicaRoutingDataSource(primary, replicaSet, readYourWrites, meterRegistry);
+        Dao target = new Dao() {
+            @Override
+            public Connection read() throws SQLException {
+                return underTest.getConnection();
+            }
+
+            @Override
+            public Connection write() throws SQLException {
+                return underTest.getConnection();
+            }
+
+            @Override
+            public Connection load() throws SQLException {
+                return underTest.getConnection();
+            }
+
+            @Override
+            public boolean delete() throws SQLException {
+                // nothing matched, the connection is given back untouched
+                underTest.getConnection();
+                return false;
+            }
+        };
+        dao = (Dao) ReadOnlyQueryRouting.wrap(target, readYourWrites, new Class<?>[]{Dao.class});
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.close();
+    }
+
+    @Test
+    void readOnlyQueriesAreServedByAnAvailableReplica() throws SQLException {
+        // Given
+        replica.update(true, 100, 0);
+        Mockito.when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+
+        // When
+        Connection read = dao.read();
+        Connection write = dao.write();
+
+        // Then
+        assertThat(read).isSameAs(replicaConnection);
+        assertThat(write).isSameAs(primaryConnection);
+        assertThat(routed("replica-0", "read")).isEqualTo(1);
+        assertThat(routed("primary", "write")).isEqualTo(1);
+    }
+
+    @Test
+    void readsAfterAWriteWaitForTheReplicaToReplayIt() throws SQLException {
+        // Given
+        replica.update(true, 0x100, 0);
+        readYourWrites.open(0, 0, session -> {
+        });
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        primaryWalPosition("0/200");
+        dao.write();
+
+        // When
+        Connection beforeReplay = dao.read();
+        replica.update(true, 0x200, 0);
+        Mockito.when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+        Connection afterReplay = dao.read();
+
+        // Then
+        assertThat(beforeReplay).isSameAs(primaryConnection);
+        assertThat(afterReplay).isSameAs(replicaConnection);
+        assertThat(routed("primary", "read_your_writes")).isEqualTo(1);
+    }
+
+    @Test
+    void writesThatChangedNothingDoNotPinReadsToThePrimary() throws SQLException {
+        // Given
+        replica.update(true, 0x100, 0);
+        readYourWrites.open(0, 0, session -> {
+        });
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+        dao.delete();
+
+        // When
+        Connection read = dao.read();
+
+        // Then
+        assertThat(read).isSameAs(replicaConnection);
+        Mockito.verify(primaryConnection, Mockito.never()).createStatement();
+    }
+
+    @Test
+    void primaryQueriesStayOnThePrimaryWithoutPinningReads() throws SQLException {
+        // Given
+        replica.update(true, 0x100, 0);
+        readYourWrites.open(0, 0, session -> {
+        });
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+
+        // When
+        Connection load = dao.load();
+        Connection read = dao.read();
+
+        // Then
+        assertThat(load).isSameAs(primaryConnection);
+        assertThat(read).isSameAs(replicaConnection);
+        Mockito.verify(primaryConnection, Mockito.never()).createStatement();
+    }
+
+    @Test
+    void changedRowsFollowTheDaoResults() {
+        assertThat(ReadOnlyQueryRouting.changedRows(false)).isFalse();
+        assertThat(ReadOnlyQueryRouting.changedRows(Optional.empty())).isFalse();
+        assertThat(ReadOnlyQueryRouting.changedRows(new int[]{0, 0})).isFalse();
+        assertThat(ReadOnlyQueryRouting.changedRows(0)).isFalse();
+        assertThat(ReadOnlyQueryRouting.changedRows(true)).isTrue();
+        assertThat(ReadOnlyQueryRouting.changedRows(Optional.of("row"))).isTrue();
+        assertThat(ReadOnlyQueryRouting.changedRows(new int[]{0, Statement.SUCCESS_NO_INFO})).isTrue();
+        assertThat(ReadOnlyQueryRouting.changedRows(null)).isTrue();
+    }
+
+    @Test
+    void readsFailOverToThePrimaryWhenTheReplicaIsDown() throws SQLException {
+        // Given
+        replica.update(true, 100, 0);
+        Mockito.when(replicaDataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+
+        // When
+        Connection first = dao.read();
+        Connection second = dao.read();
+
+        // Then
+        assertThat(first).isSameAs(primaryConnection);
+        assertThat(second).isSameAs(primaryConnection);
+        Mockito.verify(replicaDataSource, Mockito.times(1)).getConnection();
+        assertThat(routed("primary", "failover")).isEqualTo(2);
+    }
+
+    @Test
+    void readOnlyQueriesInAReadWriteTransactionStayOnThePrimary() throws SQLException {
+        // Given
+        replica.update(true, 100, 0);
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // When
+        Connection connection;
+        try {
+            connection = dao.read();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        // Then
+        assertThat(connection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void parsesWalPositions() {
+        assertThat(ReplicaSet.parseLsn("16/B374D848")).isEqualTo(0x16B374D848L);
+        assertThat(ReplicaSet.parseLsn("0/0")).isZero();
+    }
+
+    private void primaryWalPosition(String lsn) throws SQLException {
+        Statement statement = Mockito.mock(Statement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(primaryConnection.createStatement()).thenReturn(statement);
+        Mockito.when(statement.executeQuery(Mockito.anyString())).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenReturn(true);
+        Mockito.when(resultSet.getString(1)).thenReturn(lsn);
+    }
+
+    private double routed(String target, String reason) {
+        return meterRegistry.get("datasource.routing.connections")
+                .tag("target", target)
+                .tag("reason", reason)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,60 @@
+package com.havefunwith.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlNormalizerTest {
+
+    @Test
+    void replacesLiteralsAndCollapsesWhitespaceAndComments() {
+        // Given
+        String sql = """
+                SELECT id, name   -- the columns
+                FROM customer /* by email */
+                WHERE email = 'o''neil@mail.com' AND age > 42
+                """;
+
+        // When
+        String actual = SqlNormalizer.normalize(sql);
+
+        // Then
+        assertThat(actual).isEqualTo("select id, name from customer where email = ? and age > ?");
+    }
+
+    @Test
+    void keepsDigitsOfIdentifiers() {
+        // When
+        String actual = SqlNormalizer.normalize("SELECT nextval('customer_id_seq') FROM table1 WHERE c2 = $1");
+
+        // Then
+        assertThat(actual).isEqualTo("select nextval(?) from table1 where c2 = ?");
+    }
+
+    @Test
+    void collapsesInListsAndValueRowsOfAnyLength() {
+        // When
+        String two = SqlNormalizer.normalize("SELECT * FROM customer WHERE id IN (?, ?)");
+        String three = SqlNormalizer.normalize("select * from customer where id in (1,2,3)");
+        String rows = SqlNormalizer.normalize("INSERT INTO customer (name, age) VALUES (?, ?), (?, ?), (?, ?)");
+
+        // Then
+        assertThat(two).isEqualTo("select * from customer where id in (...)");
+        assertThat(three).isEqualTo(two);
+        assertThat(rows).isEqualTo("insert into customer (name, age) values (...)");
+    }
+
+    @Test
+    void sameShapeHasSameFingerprint() {
+        // Given
+        String first = SqlNormalizer.normalize("SELECT * FROM customer WHERE id = 1");
+        String second = SqlNormalizer.normalize("select *\n  from customer\n where id = 2");
+
+        // Then
+        assertThat(SqlNormalizer.fingerprint(first))
+                .isEqualTo(SqlNormalizer.fingerprint(second))
+                .hasSize(16)
+                .isNotEqualTo(SqlNormalizer.fingerprint(SqlNormalizer.normalize("SELECT * FROM customer")));
+    }
+
+}
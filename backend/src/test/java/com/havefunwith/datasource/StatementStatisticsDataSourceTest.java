@@ -0,0 +1,84 @@
+package com.havefunwith.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class StatementStatisticsDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private final StatementStatistics statementStatistics = new StatementStatistics(Duration.ofSeconds(1), 10);
+
+    @Test
+    void recordsQueriesWithTheRowsRead() throws SQLException {
+        // Given
+        String sql = "SELECT * FROM customer WHERE id > ?";
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        Mockito.when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenReturn(true, true, false);
+        StatementStatisticsDataSource underTest = new StatementStatisticsDataSource(dataSource, statementStatistics);
+
+        // When
+        try (Connection actual = underTest.getConnection();
+             PreparedStatement statement = actual.prepareStatement(sql);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                // read
+            }
+        }
+
+        // Then
+        assertThat(statementStatistics.report(10).statements()).singleElement().satisfies(summary -> {
+            assertThat(summary.sql()).isEqualTo("select * from customer where id > ?");
+            assertThat(summary.calls()).isEqualTo(1);
+            assertThat(summary.rows()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void recordsUpdateCountsAndErrors() throws SQLException {
+        // Given
+        String sql = "DELETE FROM customer WHERE id = ?";
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+        Mockito.when(preparedStatement.executeUpdate())
+                .thenReturn(1)
+                .thenThrow(new SQLException("connection lost"));
+        StatementStatisticsDataSource underTest = new StatementStatisticsDataSource(dataSource, statementStatistics);
+        PreparedStatement statement = underTest.getConnection().prepareStatement(sql);
+
+        // When
+        statement.executeUpdate();
+
+        // Then
+        assertThatThrownBy(statement::executeUpdate).hasMessage("connection lost");
+        assertThat(statementStatistics.report(10).statements()).singleElement().satisfies(summary -> {
+            assertThat(summary.calls()).isEqualTo(2);
+            assertThat(summary.errors()).isEqualTo(1);
+            assertThat(summary.rows()).isEqualTo(1);
+        });
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.havefunwith.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementStatisticsTest {
+
+    private final StatementStatistics underTest = new StatementStatistics(Duration.ofMillis(100), 2);
+
+    @Test
+    void aggregatesStatementsOfTheSameShape() {
+        // Given
+        String first = "SELECT * FROM customer WHERE id = 1";
+        String second = "SELECT * FROM customer WHERE id = 2";
+
+        // When
+        underTest.recordExecution(underTest.entry(first), first, TimeUnit.MILLISECONDS.toNanos(10), 1, false);
+        underTest.recordExecution(underTest.entry(second), second, TimeUnit.MILLISECONDS.toNanos(30), 1, false);
+        underTest.entry(second).addRow();
+
+        // Then
+        StatementStatistics.Report report = underTest.report(10);
+        assertThat(report.statements()).singleElement().satisfies(summary -> {
+            assertThat(summary.sql()).isEqualTo("select * from customer where id = ?");
+            assertThat(summary.calls()).isEqualTo(2);
+            assertThat(summary.totalMillis()).isEqualTo(40.0);
+            assertThat(summary.meanMillis()).isEqualTo(20.0);
+            assertThat(summary.maxMillis()).isEqualTo(30.0);
+            assertThat(summary.rows()).isEqualTo(3);
+        });
+        assertThat(report.slowStatements()).isEmpty();
+    }
+
+    @Test
+    void keepsTheLatestSlowStatements() {
+        // Given
+        String sql = "SELECT pg_sleep(1)";
+        StatementStatistics.Entry entry = underTest.entry(sql);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            underTest.recordExecution(entry, sql, TimeUnit.MILLISECONDS.toNanos(100 + i), 0, i == 2);
+        }
+
+        // Then
+        assertThat(underTest.report(10).slowStatements())
+                .hasSize(2)
+                .extracting(StatementStatistics.SlowStatement::millis)
+                .containsExactlyInAnyOrder(101.0, 102.0);
+        assertThat(underTest.report(10).statements().get(0).errors()).isEqualTo(1);
+    }
+
+    @Test
+    void resetStartsOver() {
+        // Given
+        String sql = "SELECT 1";
+        underTest.recordExecution(underTest.entry(sql), sql, TimeUnit.SECONDS.toNanos(1), 0, false);
+
+        // When
+        underTest.reset();
+
+        // Then
+        assertThat(underTest.report(10).statements()).isEmpty();
+        assertThat(underTest.report(10).slowStatements()).isEmpty();
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.havefunwith.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PooledBufferJsonHttpMessageConverterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final JsonBufferPool bufferPool = new JsonBufferPool(64, 2);
+    private final PooledBufferJsonHttpMessageConverter underTest =
+            new PooledBufferJsonHttpMessageConverter(objectMapper, bufferPool);
+
+    @Test
+    void writesBodyThatFitsTheBufferWithContentLength() throws Exception {
+        // Given
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        Map<String, Object> body = Map.of("name", "Jane Doe");
+
+        // When
+        underTest.write(body, MediaType.APPLICATION_JSON, message);
+
+        // Then
+        assertThat(message.getBodyAsString()).isEqualTo("{\"name\":\"Jane Doe\"}");
+        assertThat(message.getHeaders().getContentLength()).isEqualTo(19);
+        assertThat(bufferPool.pooledBuffers()).isEqualTo(1);
+    }
+
+    @Test
+    void streamsBodyLargerThanTheBufferWithoutContentLength() throws Exception {
+        // Given
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        List<String> body = Collections.nCopies(20, "Jane Doe");
+
+        // When
+        underTest.write(body, MediaType.APPLICATION_JSON, message);
+
+        // Then
+        assertThat(message.getBodyAsString()).isEqualTo(objectMapper.writeValueAsString(body));
+        assertThat(message.getHeaders().getContentLength()).isEqualTo(-1);
+        assertThat(bufferPool.pooledBuffers()).isEqualTo(1);
+    }
+
+    @Test
+    void reusesPooledBuffersUpToTheLimit() {
+        // Given
+        byte[] first = bufferPool.acquire();
+        byte[] second = bufferPool.acquire();
+        byte[] third = bufferPool.acquire();
+
+        // When
+        bufferPool.release(first);
+        bufferPool.release(second);
+        bufferPool.release(third);
+
+        // Then
+        assertThat(bufferPool.pooledBuffers()).isEqualTo(2);
+        assertThat(bufferPool.acquire()).isSameAs(first);
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.havefunwith.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.havefunwith.customer.CustomerCursor;
+import com.havefunwith.customer.CustomerRegistrationRequest;
+import com.havefunwith.customer.CustomerUpdateRequest;
+import com.havefunwith.loadtest.OperationMix.Operation;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/*
+    Open-model load generator for /api/v1/customers, to find the arrival rate the API
+    saturates at.
+
+    Requests are sent on a fixed schedule, whether or not the earlier ones completed,
+    and latency is measured from the time a request was due. A stalled server shows up
+    in the percentiles instead of quietly slowing the generator down (coordinated
+    omission). Latency from the actual send is recorded too; the gap between both shows
+    how far the generator itself fell behind.
+
+    Every rate in loadtest.rates runs for loadtest.step-duration and writes to
+    loadtest.output:
+      rate-<rate>.hgrm              corrected percentile distribution, in ms
+      rate-<rate>-uncorrected.hgrm  the same, measured from the actual send
+      throughput.csv                one line per rate, the throughput curve
+    Throughput counts the requests completed within the step's send window, the time the
+    ones still in flight take to drain afterwards is reported next to it.
+    The first rate that misses loadtest.slo at p99, or whose throughput falls more than
+    5% short of the rate, is reported as the saturation point.
+
+    mvn -Ploadtest -DskipTests verify [-Dloadtest.rates=50,100,200] [-Dloadtest.mix=get:60,list:10,post:10,put:15,delete:5]
+ */
+public class CustomerLoadGenerator {
+
+    private static final String CUSTOMERS_PATH = "/api/v1/customers";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final int SEED_CHUNK_SIZE = 1000;
+    private static final int PAGE_SIZE = 1000;
+    private static final int LIST_PAGE_SIZE = 50;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double SATURATED_THROUGHPUT_RATIO = 0.95;
+
+    private final LoadTestSettings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // keeps the emails of this run apart from earlier runs against the same database
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+
+    // ids[0, live) have not been deleted by this run, DELETE takes them from the end
+    private long[] ids;
+    private final AtomicInteger live = new AtomicInteger();
+
+    CustomerLoadGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new CustomerLoadGenerator(LoadTestSettings.fromSystemProperties()).run();
+    }
+
+    void run() throws IOException, InterruptedException {
+        Files.createDirectories(settings.outputDirectory());
+        System.out.printf("Load test against %s, mix %s, %s per rate%n",
+                settings.baseUrl(), settings.mix(), settings.stepDuration());
+        seedCustomers();
+        collectIds();
+
+        List<StepResult> results = new ArrayList<>();
+        for (int rate : settings.rates()) {
+            StepResult result = runStep(rate);
+            results.add(result);
+            writeHistogram(result.corrected(), "rate-%s.hgrm".formatted(rate));
+            writeHistogram(result.uncorrected(), "rate-%s-uncorrected.hgrm".formatted(rate));
+            System.out.println(result.summary());
+        }
+        writeThroughputCurve(results);
+
+        results.stream()
+                .filter(result -> result.saturated(settings.slo()))
+                .findFirst()
+                .ifPresentOrElse(
+                        result -> System.out.printf("Saturated at %s req/s%n", result.rate()),
+                        () -> System.out.println("Not saturated at any of the rates"));
+    }
+
+    private StepResult runStep(int rate) throws InterruptedException {
+        Recorder corrected = new Recorder(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+        Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+        Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            errors.put(operation, new LongAdder());
+        }
+        LongAdder completedInWindow = new LongAdder();
+        AtomicLong inFlight = new AtomicLong();
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = rate * settings.stepDuration().toSeconds();
+        long start = System.nanoTime();
+        // throughput counts what completes while requests are being scheduled, the tail
+        // that drains after the last one is reported on its own
+        long window = requests * interval;
+        long windowEnd = start + window;
+        for (long i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = settings.mix().next(ThreadLocalRandom.current());
+            HttpRequest request = request(operation);
+            long sent = System.nanoTime();
+            inFlight.incrementAndGet();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long now = System.nanoTime();
+                        corrected.recordValue(Math.min(now - intended, HIGHEST_TRACKABLE_LATENCY));
+                        uncorrected.recordValue(Math.min(now - sent, HIGHEST_TRACKABLE_LATENCY));
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.get(operation).increment();
+                        }
+                        if (now - windowEnd <= 0) {
+                            completedInWindow.increment();
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+        // the requests still in flight belong to this rate, every one ends by REQUEST_TIMEOUT
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        long drain = Math.max(0, System.nanoTime() - windowEnd);
+        return new StepResult(
+                rate,
+                completedInWindow.sum() * 1e9 / window,
+                drain,
+                corrected.getIntervalHistogram(),
+                uncorrected.getIntervalHistogram(),
+                errors
+        );
+    }
+
+    private HttpRequest request(Operation operation) {
+        long n = sequence.incrementAndGet();
+        return switch (operation) {
+            case GET -> HttpRequest.newBuilder(customer(liveId()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            case LIST -> HttpRequest.newBuilder(customers("?limit=%s&cursor=%s"
+                            .formatted(LIST_PAGE_SIZE, CustomerCursor.encode(liveId()))))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            case POST -> HttpRequest.newBuilder(customers(""))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(json(new CustomerRegistrationRequest(
+                            "Load " + n, "load-%s-%s@loadtest.com".formatted(runId, n), 30)))
+                    .build();
+            case PUT -> HttpRequest.newBuilder(customer(liveId()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .PUT(json(new CustomerUpdateRequest("Load updated " + n, null, null)))
+                    .build();
+            case DELETE -> HttpRequest.newBuilder(customer(deletableId()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .DELETE()
+                    .build();
+        };
+    }
+
+    private long liveId() {
+        return ids[ThreadLocalRandom.current().nextInt(Math.max(live.get(), 1))];
+    }
+
+    // once every id is deleted the remaining DELETEs hit the first one and count as errors
+    private long deletableId() {
+        int index = live.updateAndGet(current -> Math.max(current - 1, 0));
+        return ids[index];
+    }
+
+    private void seedCustomers() throws IOException, InterruptedException {
+        for (int from = 0; from < settings.seedCustomers(); from += SEED_CHUNK_SIZE) {
+            List<CustomerRegistrationRequest> chunk = IntStream
+                    .range(from, Math.min(from + SEED_CHUNK_SIZE, settings.seedCustomers()))
+                    .mapToObj(i -> new CustomerRegistrationRequest(
+                            "Seed " + i, "seed-%s-%s@loadtest.com".formatted(runId, i), 18 + i % 80))
+                    .toList();
+            HttpRequest request = HttpRequest.newBuilder(customers("/bulk"))
+                    .header("Content-Type", "application/json")
+                    .POST(json(chunk))
+                    .build();
+            send(request);
+        }
+        System.out.printf("Seeded %s customers%n", settings.seedCustomers());
+    }
+
+    private void collectIds() throws IOException, InterruptedException {
+        List<Long> collected = new ArrayList<>();
+        String cursor = null;
+        do {
+            String query = "?limit=" + PAGE_SIZE + (cursor == null ? "" : "&cursor=" + cursor);
+            JsonNode page = objectMapper.readTree(send(HttpRequest.newBuilder(customers(query)).GET().build()));
+            page.get("customers").forEach(customer -> collected.add(customer.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        if (collected.isEmpty()) {
+            throw new IllegalStateException("No customers to run GET, PUT and DELETE against");
+        }
+        ids = collected.stream().mapToLong(Long::longValue).toArray();
+        live.set(ids.length);
+        System.out.printf("Running against %s customers%n", ids.length);
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("%s %s failed with %s: %s".formatted(
+                    request.method(), request.uri(), response.statusCode(), response.body()));
+        }
+        return response.body();
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private URI customer(long id) {
+        return customers("/" + id);
+    }
+
+    private URI customers(String pathAndQuery) {
+        return settings.baseUrl().resolve(CUSTOMERS_PATH + pathAndQuery);
+    }
+
+    private void writeHistogram(Histogram histogram, String fileName) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(settings.outputDirectory().resolve(fileName)))) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private void writeThroughputCurve(List<StepResult> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("rate,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,drain_ms,errors");
+        results.forEach(result -> lines.add(result.csv()));
+        Path file = settings.outputDirectory().resolve("throughput.csv");
+        Files.write(file, lines);
+        System.out.printf("Reports written to %s%n", settings.outputDirectory().toAbsolutePath());
+    }
+
+    record StepResult(
+            int rate,
+            double throughput,
+            long drainNanos,
+            Histogram corrected,
+            Histogram uncorrected,
+            Map<Operation, LongAdder> errors
+    ) {
+
+        long errorCount() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        boolean saturated(Duration slo) {
+            return corrected.getValueAtPercentile(99) > slo.toNanos()
+                    || throughput < rate * SATURATED_THROUGHPUT_RATIO;
+        }
+
+        String csv() {
+            return "%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d".formatted(
+                    rate, throughput,
+                    millis(corrected.getValueAtPercentile(50)),
+                    millis(corrected.getValueAtPercentile(90)),
+                    millis(corrected.getValueAtPercentile(99)),
+                    millis(corrected.getValueAtPercentile(99.9)),
+                    millis(corrected.getMaxValue()),
+                    millis(drainNanos),
+                    errorCount());
+        }
+
+        String summary() {
+            StringBuilder summary = new StringBuilder("%5d req/s: %.1f req/s, p50 %.1f ms, p99 %.1f ms (uncorrected %.1f ms), max %.1f ms, drained in %.1f ms"
+                    .formatted(rate, throughput,
+                            millis(corrected.getValueAtPercentile(50)),
+                            millis(corrected.getValueAtPercentile(99)),
+                            millis(uncorrected.getValueAtPercentile(99)),
+                            millis(corrected.getMaxValue()),
+                            millis(drainNanos)));
+            errors.forEach((operation, count) -> {
+                if (count.sum() > 0) {
+                    summary.append(", ").append(count.sum()).append(' ').append(operation).append(" errors");
+                }
+            });
+            return summary.toString();
+        }
+
+        private static double millis(long nanos) {
+            return nanos / NANOS_PER_MILLI;
+        }
+
+    }
+
+}
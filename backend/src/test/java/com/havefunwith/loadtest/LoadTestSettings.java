@@ -0,0 +1,44 @@
+package com.havefunwith.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/*
+    Settings of a load test run, read from loadtest.* system properties so the
+    loadtest Maven profile can pass them through.
+ */
+record LoadTestSettings(
+        URI baseUrl,
+        int[] rates,
+        Duration stepDuration,
+        OperationMix mix,
+        int seedCustomers,
+        Duration slo,
+        Path outputDirectory
+) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                URI.create(property("loadtest.url", "http://localhost:8080")),
+                Arrays.stream(property("loadtest.rates", "50,100,200,400,800").split(","))
+                        .map(String::trim)
+                        .mapToInt(Integer::parseInt)
+                        .toArray(),
+                DurationStyle.detectAndParse(property("loadtest.step-duration", "30s")),
+                OperationMix.parse(property("loadtest.mix", "get:60,list:10,post:10,put:15,delete:5")),
+                Integer.parseInt(property("loadtest.seed-customers", "10000")),
+                DurationStyle.detectAndParse(property("loadtest.slo", "200ms")),
+                Path.of(property("loadtest.output", "target/loadtest"))
+        );
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+}
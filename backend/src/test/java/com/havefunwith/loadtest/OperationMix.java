@@ -0,0 +1,71 @@
+package com.havefunwith.loadtest;
+
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/*
+    Weighted choice between the operations, parsed from "get:60,list:10,post:10,...".
+    Operations left out are never sent.
+ */
+final class OperationMix {
+
+    enum Operation {
+        GET,
+        LIST,
+        POST,
+        PUT,
+        DELETE
+    }
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private OperationMix(Operation[] operations, int[] cumulativeWeights) {
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    static OperationMix parse(String mix) {
+        String[] entries = mix.split(",");
+        Operation[] operations = new Operation[entries.length];
+        int[] cumulativeWeights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].trim().split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Mix entry [%s] is not operation:weight".formatted(entries[i]));
+            }
+            operations[i] = Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT));
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weight of [%s] is negative".formatted(entry[0]));
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Mix [%s] has no operations".formatted(mix));
+        }
+        return new OperationMix(operations, cumulativeWeights);
+    }
+
+    Operation next(RandomGenerator random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (draw >= cumulativeWeights[i]) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mix = new StringBuilder();
+        for (int i = 0; i < operations.length; i++) {
+            int weight = cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]);
+            mix.append(i == 0 ? "" : ",").append(operations[i].name().toLowerCase(Locale.ROOT)).append(':').append(weight);
+        }
+        return mix.toString();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.havefunwith.logging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanoTime = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+
+    // two lines a second, nothing beyond that unless it has to be logged
+    private final AccessLogFilter underTest =
+            new AccessLogFilter(2, 0.0, Duration.ofSeconds(1), meterRegistry, nanoTime::get);
+
+    @Test
+    void logsEveryRequestWithinTheBudgetOfASecond() throws Exception {
+        // When
+        for (int i = 0; i < 5; i++) {
+            request(HttpServletResponse.SC_OK);
+        }
+
+        // Then
+        assertThat(count("logged")).isEqualTo(2);
+        assertThat(count("sampled_out")).isEqualTo(3);
+    }
+
+    @Test
+    void startsANewBudgetEverySecond() throws Exception {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            request(HttpServletResponse.SC_OK);
+        }
+
+        // When
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        request(HttpServletResponse.SC_OK);
+
+        // Then
+        assertThat(count("logged")).isEqualTo(3);
+        assertThat(count("sampled_out")).isEqualTo(1);
+    }
+
+    @Test
+    void alwaysLogsServerErrorsAndSlowRequests() throws Exception {
+        // Given
+        for (int i = 0; i < 2; i++) {
+            request(HttpServletResponse.SC_OK);
+        }
+
+        // When
+        request(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        // starts a second earlier and ends within the same, exhausted, second
+        nanoTime.addAndGet(-TimeUnit.SECONDS.toNanos(1));
+        underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/customers"), new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest request, HttpServletResponse response) {
+                        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+                    }
+                }));
+
+        // Then
+        assertThat(count("logged")).isEqualTo(4);
+        assertThat(count("sampled_out")).isZero();
+    }
+
+    @Test
+    void alwaysLogsRequestsFailingWithAnException() throws Exception {
+        // Given
+        for (int i = 0; i < 2; i++) {
+            request(HttpServletResponse.SC_OK);
+        }
+
+        // When
+        assertThatThrownBy(() -> underTest.doFilter(
+                new MockHttpServletRequest("GET", "/api/v1/customers/1"), new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest request, HttpServletResponse response) {
+                        throw new IllegalStateException("database is down");
+                    }
+                })))
+                .isInstanceOf(IllegalStateException.class);
+
+        // Then
+        assertThat(count("logged")).isEqualTo(3);
+        assertThat(count("sampled_out")).isZero();
+    }
+
+    private void request(int status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/customers/1"), response, new MockFilterChain());
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("access.log.requests")
+                .tag("outcome", outcome)
+                .counter()
+                .count();
+    }
+
+}
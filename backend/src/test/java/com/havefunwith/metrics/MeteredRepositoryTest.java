@@ -0,0 +1,111 @@
+package com.havefunwith.metrics;
+
+import com.havefunwith.customer.Customer;
+import com.havefunwith.customer.CustomerDao;
+import com.havefunwith.customer.CustomerListDataAccessService;
+import com.havefunwith.exception.DuplicatedResourceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeteredRepositoryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = metered(new CustomerListDataAccessService());
+    }
+
+    @Test
+    void timesEveryCallAndCountsReturnedRows() {
+        // Given
+        int customers = underTest.selectAllCustomers().size();
+
+        // When
+        underTest.selectAllCustomers();
+
+        // Then
+        assertThat(meterRegistry.get("repository.calls")
+                .tags("repository", "list", "method", "selectAllCustomers")
+                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("repository.rows")
+                .tags("repository", "list", "method", "selectAllCustomers", "kind", "returned")
+                .counter().count()).isEqualTo(2.0 * customers);
+    }
+
+    @Test
+    void countsAffectedRowsOnlyWhenTheWriteHappened() {
+        // Given
+        underTest.insertCustomer(new Customer("Alex", 30, "alex@mail.com"));
+
+        // When
+        underTest.insertCustomer(new Customer("Alex", 30, "alex@mail.com"));
+
+        // Then
+        assertThat(meterRegistry.get("repository.calls").tag("method", "insertCustomer").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("repository.rows")
+                .tags("method", "insertCustomer", "kind", "affected")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void countsRowsHandedToConsumer() {
+        // Given
+        List<Customer> streamed = new ArrayList<>();
+
+        // When
+        underTest.streamAllCustomers(100, streamed::add);
+
+        // Then
+        assertThat(streamed).isNotEmpty();
+        assertThat(meterRegistry.get("repository.rows").tag("method", "streamAllCustomers").counter().count())
+                .isEqualTo(streamed.size());
+    }
+
+    @Test
+    void onlyTimesMethodsWithoutRows() {
+        // When
+        underTest.existsPersonWithEmail("nobody@mail.com");
+
+        // Then
+        assertThat(meterRegistry.get("repository.calls").tag("method", "existsPersonWithEmail").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find("repository.rows").tag("method", "existsPersonWithEmail").counter())
+                .isNull();
+    }
+
+    @Test
+    void countsErrorsByExceptionTypeAndRethrowsThem() {
+        // Given
+        CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+        Mockito.when(customerDao.updateCustomer(Mockito.any()))
+                .thenThrow(new DuplicatedResourceException("taken"));
+        CustomerDao metered = metered(customerDao);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> metered.updateCustomer(new Customer(1L, null, null, "taken@mail.com")))
+                .isInstanceOf(DuplicatedResourceException.class);
+        assertThat(meterRegistry.get("repository.errors")
+                .tags("method", "updateCustomer", "exception", "DuplicatedResourceException")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("repository.calls").tag("method", "updateCustomer").timer().count())
+                .isEqualTo(1);
+    }
+
+    private CustomerDao metered(CustomerDao customerDao) {
+        return (CustomerDao) MeteredRepository.wrap(customerDao, "list", meterRegistry, new Class<?>[]{CustomerDao.class});
+    }
+
+}